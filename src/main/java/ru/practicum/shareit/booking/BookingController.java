@@ -1,18 +1,36 @@
 package ru.practicum.shareit.booking;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.CreateBookingDto;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingBatchResult;
 import ru.practicum.shareit.booking.model.State;
+import ru.practicum.shareit.shared.pagination.KeysetCursor;
 
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
 import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @Slf4j
@@ -20,13 +38,22 @@ import java.util.List;
 @RequestMapping(path = "/bookings")
 public class BookingController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    static final int MAX_BATCH_SIZE = 500;
+
     private final BookingService bookingService;
     private final BookingMapper bookingMapper;
+    private final Validator validator;
+    private final ObjectWriter ndjsonWriter;
 
     @Autowired
-    public BookingController(BookingService bookingService, BookingMapper bookingMapper) {
+    public BookingController(BookingService bookingService, BookingMapper bookingMapper, Validator validator,
+                             ObjectMapper objectMapper) {
         this.bookingService = bookingService;
         this.bookingMapper = bookingMapper;
+        this.validator = validator;
+        this.ndjsonWriter = objectMapper.writerFor(BookingDto.class);
     }
 
     @PostMapping
@@ -43,6 +70,37 @@ public class BookingController {
         return response;
     }
 
+    //Записи, не прошедшие валидацию DTO, отклоняются сразу, остальные создаются сервисом в одной транзакции.
+    //Ответ содержит итог по каждой записи в порядке тела запроса
+    @PostMapping("/batch")
+    public List<BookingBatchResultDto> createBatch(
+            @RequestBody @NotEmpty @Size(max = MAX_BATCH_SIZE) final List<CreateBookingDto> createBookingDtos,
+            @RequestHeader("X-Sharer-User-Id") final Long bookerId) {
+        log.info("BookingController createBatch: запрос на пакетное бронирование {} записей", createBookingDtos.size());
+        BookingBatchResultDto[] response = new BookingBatchResultDto[createBookingDtos.size()];
+        List<CreateBookingDto> validDtos = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < createBookingDtos.size(); i++) {
+            CreateBookingDto createBookingDto = createBookingDtos.get(i);
+            String error = validationError(createBookingDto);
+            if (error != null) {
+                response[i] = new BookingBatchResultDto(i, null, error);
+                continue;
+            }
+            createBookingDto.setBookerId(bookerId);
+            validDtos.add(createBookingDto);
+            validIndexes.add(i);
+        }
+        List<Booking> bookingsToCreate = bookingMapper.createDtoListToModelList(validDtos);
+        List<BookingBatchResult> results = bookingService.createAll(bookingsToCreate, bookerId);
+        for (int i = 0; i < results.size(); i++) {
+            int index = validIndexes.get(i);
+            response[index] = bookingMapper.batchResultToDto(index, results.get(i));
+        }
+        log.info("BookingController createBatch: выполнен запрос на пакетное бронирование {} записей", response.length);
+        return List.of(response);
+    }
+
     @PatchMapping("/{bookingId}")
     public BookingDto approve(
             @RequestParam final Boolean approved,
@@ -67,28 +125,85 @@ public class BookingController {
     }
 
     @GetMapping
-    public List<BookingDto> getAllBookingsOfUser(
+    public ResponseEntity<List<BookingDto>> getAllBookingsOfUser(
             @RequestParam(required = false, defaultValue = "0") @Min(0) final long from,
             @RequestParam(required = false, defaultValue = "20") @Min(1) final int size,
+            @RequestParam(required = false) final String cursor,
             @RequestHeader("X-Sharer-User-Id") final Long userId,
             @RequestParam(required = false, defaultValue = "ALL") State state) {
         log.info("BookingController getAllBookingsOfUser: запрос на получение всех броней пользователя {}", userId);
-        List<Booking> bookings = bookingService.getAllBookingsOfUser(userId, state, from, size);
-        List<BookingDto> response = bookingMapper.modelListToDtoList(bookings);
+        List<BookingDto> response = cursor == null
+                ? bookingService.getAllBookingsOfUser(userId, state, from, size)
+                : bookingService.getAllBookingsOfUser(userId, state, KeysetCursor.decode(cursor), size);
         log.info("BookingController getAllBookingsOfUser: выполнен запрос на получение всех броней пользователя {}", userId);
-        return response;
+        return withNextCursor(response, size);
+    }
+
+    //Вся история броней пользователя одним ответом в NDJSON: строка на бронь, без пагинации.
+    //Пользователь проверяется до начала ответа, сами строки пишутся из потока выгрузки по мере чтения из БД
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportAllBookingsOfUser(
+            @RequestHeader("X-Sharer-User-Id") final Long userId) {
+        log.info("BookingController exportAllBookingsOfUser: запрос на выгрузку всех броней пользователя {}", userId);
+        bookingService.checkUserExists(userId);
+        StreamingResponseBody body = outputStream -> {
+            bookingService.exportAllBookingsOfUser(userId, booking -> writeLine(outputStream, booking));
+            log.info("BookingController exportAllBookingsOfUser: выполнен запрос на выгрузку всех броней пользователя {}", userId);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/owner")
-    public List<BookingDto> getAllBookingsOfUserItems(
+    public ResponseEntity<List<BookingDto>> getAllBookingsOfUserItems(
             @RequestParam(required = false, defaultValue = "0") @Min(0) final long from,
             @RequestParam(required = false, defaultValue = "20") @Min(1) final int size,
+            @RequestParam(required = false) final String cursor,
             @RequestHeader("X-Sharer-User-Id") final Long userId,
             @RequestParam(required = false, defaultValue = "ALL") State state) {
         log.info("BookingController getAllBookingsOfUser: запрос на получение всех броней на вещи пользователя {}", userId);
-        List<Booking> bookings = bookingService.getAllBookingsOfUserItems(userId, state, from, size);
-        List<BookingDto> response = bookingMapper.modelListToDtoList(bookings);
+        List<BookingDto> response = cursor == null
+                ? bookingService.getAllBookingsOfUserItems(userId, state, from, size)
+                : bookingService.getAllBookingsOfUserItems(userId, state, KeysetCursor.decode(cursor), size);
         log.info("BookingController getAllBookingsOfUser: выполнен запрос на получение всех броней на вещи пользователя {}", userId);
-        return response;
+        return withNextCursor(response, size);
+    }
+
+    private String validationError(CreateBookingDto createBookingDto) {
+        if (createBookingDto == null) {
+            return "Пустая запись бронирования";
+        }
+        Set<ConstraintViolation<CreateBookingDto>> violations = validator.validate(createBookingDto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath().toString().isEmpty()
+                        ? violation.getMessage()
+                        : violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private void writeLine(OutputStream outputStream, BookingDto booking) {
+        try {
+            outputStream.write(ndjsonWriter.writeValueAsBytes(booking));
+            outputStream.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //Курсор отдается только для полной страницы: если записей меньше size, выдача закончилась
+    private ResponseEntity<List<BookingDto>> withNextCursor(List<BookingDto> page, int size) {
+        if (page.size() < size) {
+            return ResponseEntity.ok(page);
+        }
+        BookingDto last = page.get(page.size() - 1);
+        String nextCursor = new KeysetCursor(last.getStart(), last.getId()).encode();
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, nextCursor)
+                .body(page);
     }
 }
\ No newline at end of file
@@ -1,38 +1,210 @@
 package ru.practicum.shareit.booking;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.booking.dto.BookedPeriodDto;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.ItemBookingCountDto;
+import ru.practicum.shareit.booking.dto.ItemBookingDto;
 import ru.practicum.shareit.booking.model.Booking;
-import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.model.Status;
 import ru.practicum.shareit.shared.pagination.OffsetBasedPageRequest;
-import ru.practicum.shareit.user.model.User;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
-    List<Booking> findAllByEndBeforeAndBookerAndStatusOrderByStartDesc(LocalDateTime now, User booker, Status status, OffsetBasedPageRequest pageable);
+    //Списки броней читаются сразу в BookingDto: только нужные колонки, без управляемых сущностей и их снимков
+    String SELECT_DTO = "select new ru.practicum.shareit.booking.dto.BookingDto(" +
+            "b.id, b.start, b.end, b.status, i.id, i.name, u.id, u.name, u.email) " +
+            "from Booking b join b.item i join b.booker u where ";
 
-    List<Booking> findAllByStartAfterAndBookerAndStatusInOrderByStartDesc(LocalDateTime now, User booker, List<Status> statuses, OffsetBasedPageRequest pageable);
+    String ORDER = " order by b.start desc, b.id desc";
 
-    List<Booking> findAllByStartBeforeAndEndAfterAndBookerOrderByStartDesc(LocalDateTime start, LocalDateTime end, User user, OffsetBasedPageRequest pageable);
+    //Продолжение выдачи после курсора (start, id) вместо OFFSET
+    String AFTER_CURSOR = " and (b.start < :cursorStart or (b.start = :cursorStart and b.id < :cursorId))" + ORDER;
 
-    List<Booking> findAllByStatusAndBookerOrderByStartDesc(Status status, User booker, OffsetBasedPageRequest pageable);
+    String EXPORT_FETCH_SIZE = "500";
 
-    List<Booking> findAllByBookerOrderByStartDesc(User booker, OffsetBasedPageRequest pageable);
+    @Query(SELECT_DTO + "b.booker.id = :bookerId and b.end < :now and b.status = :status" + ORDER)
+    List<BookingDto> findPastOfBooker(@Param("bookerId") Long bookerId,
+                                      @Param("now") LocalDateTime now,
+                                      @Param("status") Status status,
+                                      OffsetBasedPageRequest pageable);
 
-    List<Booking> findAllByItemInAndEndBeforeOrderByStartDesc(List<Item> items, LocalDateTime now, OffsetBasedPageRequest pageable);
+    @Query(SELECT_DTO + "b.booker.id = :bookerId and b.start > :now and b.status in :statuses" + ORDER)
+    List<BookingDto> findFutureOfBooker(@Param("bookerId") Long bookerId,
+                                        @Param("now") LocalDateTime now,
+                                        @Param("statuses") List<Status> statuses,
+                                        OffsetBasedPageRequest pageable);
 
-    List<Booking> findAllByItemInAndStartAfterOrderByStartDesc(List<Item> items, LocalDateTime now, OffsetBasedPageRequest pageable);
+    @Query(SELECT_DTO + "b.booker.id = :bookerId and b.start < :now and b.end > :now" + ORDER)
+    List<BookingDto> findCurrentOfBooker(@Param("bookerId") Long bookerId,
+                                         @Param("now") LocalDateTime now,
+                                         OffsetBasedPageRequest pageable);
 
-    List<Booking> findAllByStartBeforeAndEndAfterAndItemInOrderByStartDesc(LocalDateTime start, LocalDateTime end, List<Item> items, OffsetBasedPageRequest pageable);
+    @Query(SELECT_DTO + "b.booker.id = :bookerId and b.status = :status" + ORDER)
+    List<BookingDto> findByStatusOfBooker(@Param("bookerId") Long bookerId,
+                                          @Param("status") Status status,
+                                          OffsetBasedPageRequest pageable);
 
-    List<Booking> findAllByStatusAndItemInOrderByStartDesc(Status status, List<Item> items, OffsetBasedPageRequest pageable);
+    @Query(SELECT_DTO + "b.booker.id = :bookerId" + ORDER)
+    List<BookingDto> findAllOfBooker(@Param("bookerId") Long bookerId,
+                                     OffsetBasedPageRequest pageable);
 
-    List<Booking> findAllByItemInOrderByStartDesc(List<Item> items, OffsetBasedPageRequest pageable);
+    @Query(SELECT_DTO + "i.owner.id = :ownerId and b.end < :now" + ORDER)
+    List<BookingDto> findPastOfOwner(@Param("ownerId") Long ownerId,
+                                     @Param("now") LocalDateTime now,
+                                     OffsetBasedPageRequest pageable);
 
-    List<Booking> findByItemAndBooker(Item item, User booker);
+    @Query(SELECT_DTO + "i.owner.id = :ownerId and b.start > :now" + ORDER)
+    List<BookingDto> findFutureOfOwner(@Param("ownerId") Long ownerId,
+                                       @Param("now") LocalDateTime now,
+                                       OffsetBasedPageRequest pageable);
+
+    @Query(SELECT_DTO + "i.owner.id = :ownerId and b.start < :now and b.end > :now" + ORDER)
+    List<BookingDto> findCurrentOfOwner(@Param("ownerId") Long ownerId,
+                                        @Param("now") LocalDateTime now,
+                                        OffsetBasedPageRequest pageable);
+
+    @Query(SELECT_DTO + "i.owner.id = :ownerId and b.status = :status" + ORDER)
+    List<BookingDto> findByStatusOfOwner(@Param("ownerId") Long ownerId,
+                                         @Param("status") Status status,
+                                         OffsetBasedPageRequest pageable);
+
+    @Query(SELECT_DTO + "i.owner.id = :ownerId" + ORDER)
+    List<BookingDto> findAllOfOwner(@Param("ownerId") Long ownerId,
+                                    OffsetBasedPageRequest pageable);
+
+    @Query(SELECT_DTO + "b.booker.id = :bookerId and b.end < :now and b.status = :status" + AFTER_CURSOR)
+    List<BookingDto> findPastOfBookerAfterCursor(@Param("bookerId") Long bookerId,
+                                                 @Param("now") LocalDateTime now,
+                                                 @Param("status") Status status,
+                                                 @Param("cursorStart") LocalDateTime cursorStart,
+                                                 @Param("cursorId") Long cursorId,
+                                                 OffsetBasedPageRequest pageable);
+
+    @Query(SELECT_DTO + "b.booker.id = :bookerId and b.start > :now and b.status in :statuses" + AFTER_CURSOR)
+    List<BookingDto> findFutureOfBookerAfterCursor(@Param("bookerId") Long bookerId,
+                                                   @Param("now") LocalDateTime now,
+                                                   @Param("statuses") List<Status> statuses,
+                                                   @Param("cursorStart") LocalDateTime cursorStart,
+                                                   @Param("cursorId") Long cursorId,
+                                                   OffsetBasedPageRequest pageable);
+
+    @Query(SELECT_DTO + "b.booker.id = :bookerId and b.start < :now and b.end > :now" + AFTER_CURSOR)
+    List<BookingDto> findCurrentOfBookerAfterCursor(@Param("bookerId") Long bookerId,
+                                                    @Param("now") LocalDateTime now,
+                                                    @Param("cursorStart") LocalDateTime cursorStart,
+                                                    @Param("cursorId") Long cursorId,
+                                                    OffsetBasedPageRequest pageable);
+
+    @Query(SELECT_DTO + "b.booker.id = :bookerId and b.status = :status" + AFTER_CURSOR)
+    List<BookingDto> findByStatusOfBookerAfterCursor(@Param("bookerId") Long bookerId,
+                                                     @Param("status") Status status,
+                                                     @Param("cursorStart") LocalDateTime cursorStart,
+                                                     @Param("cursorId") Long cursorId,
+                                                     OffsetBasedPageRequest pageable);
+
+    @Query(SELECT_DTO + "b.booker.id = :bookerId" + AFTER_CURSOR)
+    List<BookingDto> findAllOfBookerAfterCursor(@Param("bookerId") Long bookerId,
+                                                @Param("cursorStart") LocalDateTime cursorStart,
+                                                @Param("cursorId") Long cursorId,
+                                                OffsetBasedPageRequest pageable);
+
+    @Query(SELECT_DTO + "i.owner.id = :ownerId and b.end < :now" + AFTER_CURSOR)
+    List<BookingDto> findPastOfOwnerAfterCursor(@Param("ownerId") Long ownerId,
+                                                @Param("now") LocalDateTime now,
+                                                @Param("cursorStart") LocalDateTime cursorStart,
+                                                @Param("cursorId") Long cursorId,
+                                                OffsetBasedPageRequest pageable);
+
+    @Query(SELECT_DTO + "i.owner.id = :ownerId and b.start > :now" + AFTER_CURSOR)
+    List<BookingDto> findFutureOfOwnerAfterCursor(@Param("ownerId") Long ownerId,
+                                                  @Param("now") LocalDateTime now,
+                                                  @Param("cursorStart") LocalDateTime cursorStart,
+                                                  @Param("cursorId") Long cursorId,
+                                                  OffsetBasedPageRequest pageable);
+
+    @Query(SELECT_DTO + "i.owner.id = :ownerId and b.start < :now and b.end > :now" + AFTER_CURSOR)
+    List<BookingDto> findCurrentOfOwnerAfterCursor(@Param("ownerId") Long ownerId,
+                                                   @Param("now") LocalDateTime now,
+                                                   @Param("cursorStart") LocalDateTime cursorStart,
+                                                   @Param("cursorId") Long cursorId,
+                                                   OffsetBasedPageRequest pageable);
+
+    @Query(SELECT_DTO + "i.owner.id = :ownerId and b.status = :status" + AFTER_CURSOR)
+    List<BookingDto> findByStatusOfOwnerAfterCursor(@Param("ownerId") Long ownerId,
+                                                    @Param("status") Status status,
+                                                    @Param("cursorStart") LocalDateTime cursorStart,
+                                                    @Param("cursorId") Long cursorId,
+                                                    OffsetBasedPageRequest pageable);
+
+    @Query(SELECT_DTO + "i.owner.id = :ownerId" + AFTER_CURSOR)
+    List<BookingDto> findAllOfOwnerAfterCursor(@Param("ownerId") Long ownerId,
+                                               @Param("cursorStart") LocalDateTime cursorStart,
+                                               @Param("cursorId") Long cursorId,
+                                               OffsetBasedPageRequest pageable);
+
+    //Пересечение полуинтервалов: уже начавшаяся бронь мешает, только если заканчивается позже начала новой
+    @Query("select count(b) > 0 from Booking b " +
+            "where b.item.id = :itemId and b.status in :statuses and b.start < :end and b.end > :start")
+    boolean existsOverlapping(@Param("itemId") Long itemId,
+                              @Param("statuses") List<Status> statuses,
+                              @Param("start") LocalDateTime start,
+                              @Param("end") LocalDateTime end);
+
+    //Занятые периоды вещей из itemIds внутри окна [from, to): проверка пересечений для пакета броней одним запросом
+    @Query("select new ru.practicum.shareit.booking.dto.BookedPeriodDto(b.item.id, b.start, b.end) from Booking b " +
+            "where b.item.id in :itemIds and b.status in :statuses and b.start < :to and b.end > :from")
+    List<BookedPeriodDto> findBookedPeriodsOfItems(@Param("itemIds") Collection<Long> itemIds,
+                                                   @Param("statuses") List<Status> statuses,
+                                                   @Param("from") LocalDateTime from,
+                                                   @Param("to") LocalDateTime to);
+
+    //Право оставить отзыв: подтвержденная и уже начавшаяся бронь арендатора на вещь. Одна проба индекса
+    //bookings (booker_id, item_id, status, start_date) вместо загрузки всех броней пары
+    @Query("select count(b) > 0 from Booking b " +
+            "where b.booker.id = :bookerId and b.item.id = :itemId and b.status = :status and b.start < :now")
+    boolean existsStartedOfBookerOnItem(@Param("bookerId") Long bookerId,
+                                        @Param("itemId") Long itemId,
+                                        @Param("status") Status status,
+                                        @Param("now") LocalDateTime now);
+
+    //Последняя начавшаяся и ближайшая будущая бронь со статусом status для каждой вещи из itemIds за один запрос
+    @Query("select new ru.practicum.shareit.booking.dto.ItemBookingDto(b.item.id, b.id, b.booker.id, b.start) " +
+            "from Booking b " +
+            "where b.item.id in :itemIds and b.status = :status " +
+            "and (b.start = (select max(l.start) from Booking l " +
+            "                where l.item = b.item and l.status = :status and l.start < :now) " +
+            "  or b.start = (select min(n.start) from Booking n " +
+            "                where n.item = b.item and n.status = :status and n.start > :now)) " +
+            "order by b.id")
+    List<ItemBookingDto> findLastAndNextOfItems(@Param("itemIds") Collection<Long> itemIds,
+                                                @Param("status") Status status,
+                                                @Param("now") LocalDateTime now);
+
+    @Query("select new ru.practicum.shareit.booking.dto.ItemBookingCountDto(b.item.id, count(b)) " +
+            "from Booking b where b.item.id in :itemIds and b.status = :status group by b.item.id")
+    List<ItemBookingCountDto> countOfItems(@Param("itemIds") Collection<Long> itemIds,
+                                           @Param("status") Status status);
+
+    //Выгрузка всей истории арендатора: курсор только вперед, строки приходят из БД порциями по EXPORT_FETCH_SIZE.
+    //Читается сразу DTO, поэтому контекст персистентности не растет с длиной истории
+    @QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE))
+    @Query(SELECT_DTO + "b.booker.id = :bookerId" + ORDER)
+    Stream<BookingDto> streamAllOfBooker(@Param("bookerId") Long bookerId);
+
+    //Вещи, сводки которых затронет удаление арендатора вместе с его бронями
+    @Query("select distinct b.item.id from Booking b where b.booker.id = :bookerId and b.status = :status")
+    List<Long> findItemIdsOfBooker(@Param("bookerId") Long bookerId,
+                                   @Param("status") Status status);
 }
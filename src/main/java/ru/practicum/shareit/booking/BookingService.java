@@ -1,19 +1,33 @@
 package ru.practicum.shareit.booking;
 
 
+import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingBatchResult;
 import ru.practicum.shareit.booking.model.State;
+import ru.practicum.shareit.shared.pagination.KeysetCursor;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface BookingService {
     Booking create(Booking bookingToCreate);
 
+    List<BookingBatchResult> createAll(List<Booking> bookingsToCreate, Long bookerId);
+
     Booking approve(Boolean approved, Long bookingId, Long ownerId);
 
     Booking getById(Long bookingId, Long userId);
 
-    List<Booking> getAllBookingsOfUser(Long userId, State state, Long from, Integer size);
+    List<BookingDto> getAllBookingsOfUser(Long userId, State state, Long from, Integer size);
+
+    List<BookingDto> getAllBookingsOfUser(Long userId, State state, KeysetCursor cursor, Integer size);
+
+    List<BookingDto> getAllBookingsOfUserItems(Long userId, State state, Long from, Integer size);
+
+    List<BookingDto> getAllBookingsOfUserItems(Long userId, State state, KeysetCursor cursor, Integer size);
+
+    void checkUserExists(Long userId);
 
-    List<Booking> getAllBookingsOfUserItems(Long userId, State state, Long from, Integer size);
+    void exportAllBookingsOfUser(Long userId, Consumer<BookingDto> consumer);
 }
@@ -1,40 +1,80 @@
 package ru.practicum.shareit.booking;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookedPeriodDto;
+import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.exception.BookingAlreadyApprovedException;
 import ru.practicum.shareit.booking.exception.ItemUnavailableException;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingBatchResult;
 import ru.practicum.shareit.booking.model.State;
+import ru.practicum.shareit.booking.summary.ItemBookingSummaryService;
 import ru.practicum.shareit.item.ItemRepository;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.model.Status;
 import ru.practicum.shareit.shared.exception.AccessDeniedException;
+import ru.practicum.shareit.shared.exception.ConflictException;
 import ru.practicum.shareit.shared.exception.NotFoundException;
+import ru.practicum.shareit.shared.pagination.KeysetCursor;
 import ru.practicum.shareit.shared.pagination.OffsetBasedPageRequest;
+import ru.practicum.shareit.user.KnownUsers;
 import ru.practicum.shareit.user.UserRepository;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class BookingServiceImpl implements BookingService {
 
+    //Отклоненные и отмененные брони период не занимают
+    private static final List<Status> BLOCKING_STATUSES = List.of(Status.WAITING, Status.APPROVED);
+
+    //Время выдачи списков броней по роли пользователя, способу пагинации и State
+    private static final String LIST_TIMER = "shareit.bookings.list";
+    private static final String BOOKER = "booker";
+    private static final String OWNER = "owner";
+    private static final String OFFSET = "offset";
+    private static final String CURSOR = "cursor";
+
+    private static final String OVERLAP_MESSAGE =
+            "При запросе на создание брони передан период, пересекающийся с другой бронью вещи";
+
     private final BookingRepository bookingRepository;
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
+    private final KnownUsers knownUsers;
+    private final ItemBookingLocks itemBookingLocks;
+    private final ItemBookingSummaryService itemBookingSummaryService;
+    private final MeterRegistry meterRegistry;
 
     @Autowired
     public BookingServiceImpl(BookingRepository bookingRepository, ItemRepository itemRepository,
-                              UserRepository userRepository) {
+                              UserRepository userRepository, KnownUsers knownUsers,
+                              ItemBookingLocks itemBookingLocks, ItemBookingSummaryService itemBookingSummaryService,
+                              MeterRegistry meterRegistry) {
         this.bookingRepository = bookingRepository;
         this.itemRepository = itemRepository;
         this.userRepository = userRepository;
+        this.knownUsers = knownUsers;
+        this.itemBookingLocks = itemBookingLocks;
+        this.itemBookingSummaryService = itemBookingSummaryService;
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
@@ -49,7 +89,59 @@ public class BookingServiceImpl implements BookingService {
         Optional<User> bookerOptional = userRepository.findById(bookingToCreate.getBooker().getId());
         validateBooker(bookerOptional, bookingToCreate.getItem().getOwner().getId());
         bookingToCreate.setBooker(bookerOptional.get());
-        return bookingRepository.save(bookingToCreate);
+        itemBookingLocks.lockUntilCompletion(itemId);
+        if (bookingRepository.existsOverlapping(
+                itemId, BLOCKING_STATUSES, bookingToCreate.getStart(), bookingToCreate.getEnd())) {
+            throw new ConflictException(OVERLAP_MESSAGE);
+        }
+        try {
+            //С id из последовательности вставка откладывается до flush, а нарушение ограничения нужно поймать здесь
+            return bookingRepository.saveAndFlush(bookingToCreate);
+        } catch (DataIntegrityViolationException e) {
+            //В postgres пересечение дополнительно запрещено exclusion constraint, он срабатывает и между инстансами
+            throw new ConflictException(OVERLAP_MESSAGE, e);
+        }
+    }
+
+    //Пакет проверяется множествами, а не по записи: вещи и занятые периоды читаются двумя запросами на весь пакет,
+    //принятые брони сохраняются одной пачкой. Ошибка записи не отменяет остальные, кроме ошибки самого арендатора
+    @Override
+    @Transactional
+    public List<BookingBatchResult> createAll(List<Booking> bookingsToCreate, Long bookerId) {
+        User booker = userRepository.findById(bookerId).orElseThrow(() -> {
+            throw new NotFoundException("При запросе на пакетное создание броней передан несуществующий id пользователя");
+        });
+        Set<Long> itemIds = bookingsToCreate.stream()
+                .map(booking -> booking.getItem().getId())
+                .collect(Collectors.toSet());
+        Map<Long, Item> items = itemRepository.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        itemBookingLocks.lockAllUntilCompletion(items.keySet());
+        Map<Long, List<BookedPeriodDto>> bookedPeriods = findBookedPeriods(items.keySet(), bookingsToCreate).stream()
+                .collect(Collectors.groupingBy(BookedPeriodDto::getItemId, Collectors.toCollection(ArrayList::new)));
+        List<BookingBatchResult> results = new ArrayList<>(bookingsToCreate.size());
+        List<Booking> accepted = new ArrayList<>();
+        for (Booking booking : bookingsToCreate) {
+            Item item = items.get(booking.getItem().getId());
+            String error = batchEntryError(booking, item, bookerId, bookedPeriods);
+            if (error != null) {
+                results.add(BookingBatchResult.rejected(error));
+                continue;
+            }
+            booking.setItem(item);
+            booking.setBooker(booker);
+            accepted.add(booking);
+            bookedPeriods.computeIfAbsent(item.getId(), id -> new ArrayList<>())
+                    .add(new BookedPeriodDto(item.getId(), booking.getStart(), booking.getEnd()));
+            results.add(BookingBatchResult.created(booking));
+        }
+        try {
+            bookingRepository.saveAll(accepted);
+            bookingRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw new ConflictException(OVERLAP_MESSAGE, e);
+        }
+        return results;
     }
 
     @Override
@@ -66,8 +158,10 @@ public class BookingServiceImpl implements BookingService {
         if (booking.getStatus() != Status.WAITING) {
             throw new BookingAlreadyApprovedException("При запросе на подтверждение брони передана уже подтвержденная бронь");
         }
+        //Сводку меняет только подтверждение: брони в ожидании и отклоненные в ней не учитываются
         if (approved) {
             booking.setStatus(Status.APPROVED);
+            itemBookingSummaryService.approved(booking);
         } else {
             booking.setStatus(Status.REJECTED);
         }
@@ -89,60 +183,173 @@ public class BookingServiceImpl implements BookingService {
     }
 
     @Override
-    public List<Booking> getAllBookingsOfUser(Long userId, State state, Long from, Integer size) {
-        Optional<User> userOptional = userRepository.findById(userId);
-        if (userOptional.isEmpty()) {
-            throw new NotFoundException("В запросе на получение всех броней пользователей передан несуществующий id");
+    @Transactional(readOnly = true)
+    public List<BookingDto> getAllBookingsOfUser(Long userId, State state, Long from, Integer size) {
+        return listTimer(BOOKER, OFFSET, state).record(() -> bookingsOfBooker(userId, state, from, size));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookingDto> getAllBookingsOfUser(Long userId, State state, KeysetCursor cursor, Integer size) {
+        return listTimer(BOOKER, CURSOR, state).record(() -> bookingsOfBooker(userId, state, cursor, size));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookingDto> getAllBookingsOfUserItems(Long userId, State state, Long from, Integer size) {
+        return listTimer(OWNER, OFFSET, state).record(() -> bookingsOfOwner(userId, state, from, size));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookingDto> getAllBookingsOfUserItems(Long userId, State state, KeysetCursor cursor, Integer size) {
+        return listTimer(OWNER, CURSOR, state).record(() -> bookingsOfOwner(userId, state, cursor, size));
+    }
+
+    //Строки передаются consumer по одной, пока открыт курсор: транзакция живет до конца выгрузки
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAllBookingsOfUser(Long userId, Consumer<BookingDto> consumer) {
+        checkUserExists(userId);
+        try (Stream<BookingDto> bookings = bookingRepository.streamAllOfBooker(userId)) {
+            bookings.forEach(consumer);
         }
-        User booker = userOptional.get();
+    }
+
+    private List<BookingDto> bookingsOfBooker(Long userId, State state, Long from, Integer size) {
+        checkUserExists(userId);
         OffsetBasedPageRequest pageable = new OffsetBasedPageRequest(from, size);
         switch (state) {
             case PAST:
-                return bookingRepository.findAllByEndBeforeAndBookerAndStatusOrderByStartDesc(LocalDateTime.now(), booker, Status.APPROVED, pageable);
+                return bookingRepository.findPastOfBooker(userId, LocalDateTime.now(), Status.APPROVED, pageable);
             case FUTURE:
-                return bookingRepository.findAllByStartAfterAndBookerAndStatusInOrderByStartDesc(LocalDateTime.now(), booker, List.of(Status.APPROVED, Status.WAITING), pageable);
+                return bookingRepository.findFutureOfBooker(userId, LocalDateTime.now(), List.of(Status.APPROVED, Status.WAITING), pageable);
             case CURRENT:
-                return bookingRepository.findAllByStartBeforeAndEndAfterAndBookerOrderByStartDesc(
-                        LocalDateTime.now(), LocalDateTime.now(), booker, pageable);
+                return bookingRepository.findCurrentOfBooker(userId, LocalDateTime.now(), pageable);
             case WAITING:
-                return bookingRepository.findAllByStatusAndBookerOrderByStartDesc(Status.WAITING, booker, pageable);
+                return bookingRepository.findByStatusOfBooker(userId, Status.WAITING, pageable);
             case REJECTED:
-                return bookingRepository.findAllByStatusAndBookerOrderByStartDesc(Status.REJECTED, booker, pageable);
+                return bookingRepository.findByStatusOfBooker(userId, Status.REJECTED, pageable);
             default:
-                return bookingRepository.findAllByBookerOrderByStartDesc(booker, pageable);
+                return bookingRepository.findAllOfBooker(userId, pageable);
         }
     }
 
-    @Override
-    public List<Booking> getAllBookingsOfUserItems(Long userId, State state, Long from, Integer size) {
-        Optional<User> userOptional = userRepository.findById(userId);
-        if (userOptional.isEmpty()) {
-            throw new NotFoundException("В запросе на получение всех броней пользователей передан несуществующий id");
-        }
-        User booker = userOptional.get();
-        if (booker.getItems().isEmpty()) {
-            return Collections.emptyList();
+    private List<BookingDto> bookingsOfBooker(Long userId, State state, KeysetCursor cursor, Integer size) {
+        checkUserExists(userId);
+        OffsetBasedPageRequest pageable = new OffsetBasedPageRequest(0, size);
+        LocalDateTime cursorStart = cursor.getStart();
+        Long cursorId = cursor.getId();
+        switch (state) {
+            case PAST:
+                return bookingRepository.findPastOfBookerAfterCursor(
+                        userId, LocalDateTime.now(), Status.APPROVED, cursorStart, cursorId, pageable);
+            case FUTURE:
+                return bookingRepository.findFutureOfBookerAfterCursor(
+                        userId, LocalDateTime.now(), List.of(Status.APPROVED, Status.WAITING), cursorStart, cursorId, pageable);
+            case CURRENT:
+                return bookingRepository.findCurrentOfBookerAfterCursor(
+                        userId, LocalDateTime.now(), cursorStart, cursorId, pageable);
+            case WAITING:
+                return bookingRepository.findByStatusOfBookerAfterCursor(
+                        userId, Status.WAITING, cursorStart, cursorId, pageable);
+            case REJECTED:
+                return bookingRepository.findByStatusOfBookerAfterCursor(
+                        userId, Status.REJECTED, cursorStart, cursorId, pageable);
+            default:
+                return bookingRepository.findAllOfBookerAfterCursor(userId, cursorStart, cursorId, pageable);
         }
-        List<Item> items = booker.getItems();
+    }
+
+    private List<BookingDto> bookingsOfOwner(Long userId, State state, Long from, Integer size) {
+        checkUserExists(userId);
         OffsetBasedPageRequest pageable = new OffsetBasedPageRequest(from, size);
         switch (state) {
             case PAST:
-                return bookingRepository.findAllByItemInAndEndBeforeOrderByStartDesc(items, LocalDateTime.now(), pageable);
+                return bookingRepository.findPastOfOwner(userId, LocalDateTime.now(), pageable);
+            case FUTURE:
+                return bookingRepository.findFutureOfOwner(userId, LocalDateTime.now(), pageable);
+            case CURRENT:
+                return bookingRepository.findCurrentOfOwner(userId, LocalDateTime.now(), pageable);
+            case WAITING:
+                return bookingRepository.findByStatusOfOwner(userId, Status.WAITING, pageable);
+            case REJECTED:
+                return bookingRepository.findByStatusOfOwner(userId, Status.REJECTED, pageable);
+            default:
+                return bookingRepository.findAllOfOwner(userId, pageable);
+        }
+    }
+
+    private List<BookingDto> bookingsOfOwner(Long userId, State state, KeysetCursor cursor, Integer size) {
+        checkUserExists(userId);
+        OffsetBasedPageRequest pageable = new OffsetBasedPageRequest(0, size);
+        LocalDateTime cursorStart = cursor.getStart();
+        Long cursorId = cursor.getId();
+        switch (state) {
+            case PAST:
+                return bookingRepository.findPastOfOwnerAfterCursor(
+                        userId, LocalDateTime.now(), cursorStart, cursorId, pageable);
             case FUTURE:
-                return bookingRepository.findAllByItemInAndStartAfterOrderByStartDesc(items, LocalDateTime.now(), pageable);
+                return bookingRepository.findFutureOfOwnerAfterCursor(
+                        userId, LocalDateTime.now(), cursorStart, cursorId, pageable);
             case CURRENT:
-                return bookingRepository.findAllByStartBeforeAndEndAfterAndItemInOrderByStartDesc(
-                        LocalDateTime.now(),
-                        LocalDateTime.now(),
-                        items,
-                        pageable);
+                return bookingRepository.findCurrentOfOwnerAfterCursor(
+                        userId, LocalDateTime.now(), cursorStart, cursorId, pageable);
             case WAITING:
-                return bookingRepository.findAllByStatusAndItemInOrderByStartDesc(Status.WAITING, items, pageable);
+                return bookingRepository.findByStatusOfOwnerAfterCursor(
+                        userId, Status.WAITING, cursorStart, cursorId, pageable);
             case REJECTED:
-                return bookingRepository.findAllByStatusAndItemInOrderByStartDesc(Status.REJECTED, items, pageable);
+                return bookingRepository.findByStatusOfOwnerAfterCursor(
+                        userId, Status.REJECTED, cursorStart, cursorId, pageable);
             default:
-                return bookingRepository.findAllByItemInOrderByStartDesc(items, pageable);
+                return bookingRepository.findAllOfOwnerAfterCursor(userId, cursorStart, cursorId, pageable);
+        }
+    }
+
+    private Timer listTimer(String role, String pagination, State state) {
+        return Timer.builder(LIST_TIMER)
+                .tag("role", role)
+                .tag("pagination", pagination)
+                .tag("state", state.name())
+                .register(meterRegistry);
+    }
+
+    //Для выдачи броней сам пользователь не нужен: достаточно проверить, что он существует
+    @Override
+    public void checkUserExists(Long userId) {
+        if (!knownUsers.exists(userId)) {
+            throw new NotFoundException("В запросе на получение всех броней пользователей передан несуществующий id");
+        }
+    }
+
+    //Одно окно на весь пакет: от самого раннего начала до самого позднего конца
+    private List<BookedPeriodDto> findBookedPeriods(Set<Long> itemIds, List<Booking> bookings) {
+        if (itemIds.isEmpty()) {
+            return List.of();
+        }
+        LocalDateTime from = bookings.stream().map(Booking::getStart).min(Comparator.naturalOrder()).orElseThrow();
+        LocalDateTime to = bookings.stream().map(Booking::getEnd).max(Comparator.naturalOrder()).orElseThrow();
+        return bookingRepository.findBookedPeriodsOfItems(itemIds, BLOCKING_STATUSES, from, to);
+    }
+
+    //Те же проверки, что при создании одной брони, но вместо исключения возвращается текст ошибки
+    private String batchEntryError(Booking booking, Item item, Long bookerId,
+                                   Map<Long, List<BookedPeriodDto>> bookedPeriods) {
+        if (item == null) {
+            return "При запросе на создание брони передан несуществующий id вещи";
+        }
+        if (!item.getAvailable()) {
+            return "При запросе за создание брони передан вещь недоступна для бронирования";
+        }
+        if (Objects.equals(item.getOwner().getId(), bookerId)) {
+            return "При запросе на создание брони передан несуществующий id пользователя";
+        }
+        boolean overlaps = bookedPeriods.getOrDefault(item.getId(), List.of()).stream()
+                .anyMatch(period -> period.overlaps(booking.getStart(), booking.getEnd()));
+        if (overlaps) {
+            return OVERLAP_MESSAGE;
         }
+        return null;
     }
 
     private void validateBooker(Optional<User> bookerOptional, Long ownerId) {
@@ -0,0 +1,59 @@
+package ru.practicum.shareit.booking;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Полосатые блокировки по id вещи: брони разных вещей не ждут друг друга, брони одной вещи идут по очереди.
+//Блокировка держится до завершения транзакции, чтобы следующая проверка пересечений видела закоммиченную бронь
+@Component
+public class ItemBookingLocks {
+
+    private final ReentrantLock[] stripes;
+
+    public ItemBookingLocks(@Value("${shareit.booking.lock-stripes:64}") int stripeCount) {
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public void lockUntilCompletion(Long itemId) {
+        checkTransaction();
+        lockUntilCompletion(stripes[stripeOf(itemId)]);
+    }
+
+    //Полосы захватываются по возрастанию номера: пакеты с общими вещами не могут взять их в разном порядке
+    public void lockAllUntilCompletion(Collection<Long> itemIds) {
+        checkTransaction();
+        itemIds.stream()
+                .map(this::stripeOf)
+                .distinct()
+                .sorted()
+                .forEach(stripe -> lockUntilCompletion(stripes[stripe]));
+    }
+
+    private int stripeOf(Long itemId) {
+        return Math.floorMod(itemId.hashCode(), stripes.length);
+    }
+
+    private void checkTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Блокировка вещи возможна только внутри транзакции");
+        }
+    }
+
+    private void lockUntilCompletion(ReentrantLock lock) {
+        lock.lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+}
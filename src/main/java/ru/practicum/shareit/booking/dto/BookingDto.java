@@ -16,6 +16,17 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class BookingDto {
 
+    //Конструктор для JPQL-проекции списков броней
+    public BookingDto(Long id, LocalDateTime start, LocalDateTime end, Status status,
+                      Long itemId, String itemName, Long bookerId, String bookerName, String bookerEmail) {
+        this.id = id;
+        this.start = start;
+        this.end = end;
+        this.status = status;
+        this.item = new ItemDto(itemId, itemName);
+        this.booker = new UserDto(bookerId, bookerName, bookerEmail);
+    }
+
     private Long id;
 
     private LocalDateTime start;
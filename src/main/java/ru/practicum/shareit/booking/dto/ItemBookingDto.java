@@ -0,0 +1,19 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@AllArgsConstructor
+public class ItemBookingDto {
+
+    private Long itemId;
+
+    private Long id;
+
+    private Long bookerId;
+
+    private LocalDateTime start;
+}
@@ -2,9 +2,11 @@ package ru.practicum.shareit.booking.mapper;
 
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.CreateBookingDto;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingBatchResult;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.user.dto.UserDto;
@@ -31,6 +33,11 @@ public interface BookingMapper {
 
     List<BookingDto> modelListToDtoList(List<Booking> bookingList);
 
+    default BookingBatchResultDto batchResultToDto(int index, BookingBatchResult result) {
+        BookingDto booking = result.getBooking() == null ? null : modelToDto(result.getBooking());
+        return new BookingBatchResultDto(index, booking, result.getError());
+    }
+
     default User bookerFromId(Long userId) {
         return new User(userId);
     }
@@ -18,8 +18,10 @@ import java.time.LocalDateTime;
 @Table(name = "bookings")
 public class Booking {
 
+    //Id из последовательности, а не IDENTITY: иначе Hibernate не может объединять вставки в JDBC-батчи
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookings_id_seq")
+    @SequenceGenerator(name = "bookings_id_seq", sequenceName = "bookings_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "start_date", columnDefinition = "TIMESTAMP")
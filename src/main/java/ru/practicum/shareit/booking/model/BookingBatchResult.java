@@ -0,0 +1,22 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//Итог одной записи пакетного бронирования: созданная бронь или причина отказа
+@Getter
+@AllArgsConstructor
+public class BookingBatchResult {
+
+    private Booking booking;
+
+    private String error;
+
+    public static BookingBatchResult created(Booking booking) {
+        return new BookingBatchResult(booking, null);
+    }
+
+    public static BookingBatchResult rejected(String error) {
+        return new BookingBatchResult(null, error);
+    }
+}
@@ -0,0 +1,103 @@
+package ru.practicum.shareit.booking.summary;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+//Сводка подтвержденных броней вещи: последняя начавшаяся, ближайшая будущая и их общее число.
+//Строка верна, пока ближайшая будущая бронь не началась, дальше ее пересчитывает ItemBookingSummaryChecker.rollForward
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@Entity
+@Table(name = "item_booking_summary")
+public class ItemBookingSummary implements Persistable<Long> {
+
+    public ItemBookingSummary(Long itemId) {
+        this.itemId = itemId;
+        this.approvedCount = 0L;
+    }
+
+    @Id
+    @Column(name = "item_id")
+    private Long itemId;
+
+    @Column(name = "last_booking_id")
+    private Long lastBookingId;
+
+    @Column(name = "last_booker_id")
+    private Long lastBookerId;
+
+    @Column(name = "last_start")
+    private LocalDateTime lastStart;
+
+    @Column(name = "next_booking_id")
+    private Long nextBookingId;
+
+    @Column(name = "next_booker_id")
+    private Long nextBookerId;
+
+    @Column(name = "next_start")
+    private LocalDateTime nextStart;
+
+    @Column(name = "approved_count")
+    private Long approvedCount;
+
+    //id назначается вручную, без флага save делал бы merge с лишним SELECT перед каждой вставкой
+    @Transient
+    @ToString.Exclude
+    private boolean persisted;
+
+    @Override
+    public Long getId() {
+        return itemId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
+    public boolean isFresh(LocalDateTime now) {
+        return nextStart == null || nextStart.isAfter(now);
+    }
+
+    public boolean sameAs(ItemBookingSummary other) {
+        return Objects.equals(lastBookingId, other.lastBookingId)
+                && Objects.equals(lastBookerId, other.lastBookerId)
+                && Objects.equals(lastStart, other.lastStart)
+                && Objects.equals(nextBookingId, other.nextBookingId)
+                && Objects.equals(nextBookerId, other.nextBookerId)
+                && Objects.equals(nextStart, other.nextStart)
+                && Objects.equals(approvedCount, other.approvedCount);
+    }
+
+    public void copyFrom(ItemBookingSummary other) {
+        lastBookingId = other.lastBookingId;
+        lastBookerId = other.lastBookerId;
+        lastStart = other.lastStart;
+        nextBookingId = other.nextBookingId;
+        nextBookerId = other.nextBookerId;
+        nextStart = other.nextStart;
+        approvedCount = other.approvedCount;
+    }
+}
@@ -0,0 +1,70 @@
+package ru.practicum.shareit.booking.summary;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+//Фоновое обслуживание сводок: сдвиг по времени и сверка с bookings.
+//Каждая пачка вещей - отдельная транзакция ItemBookingSummaryService, блокировки строк держатся недолго
+@Slf4j
+@Component
+public class ItemBookingSummaryChecker {
+
+    private final ItemBookingSummaryService summaryService;
+    private final int batchSize;
+
+    @Autowired
+    public ItemBookingSummaryChecker(ItemBookingSummaryService summaryService,
+                                     @Value("${shareit.booking.summary.batch-size:500}") int batchSize) {
+        this.summaryService = summaryService;
+        this.batchSize = batchSize;
+    }
+
+    //Ближайшая бронь началась - она становится последней, а ближайшей - следующая за ней.
+    //До сдвига такие строки чтение вещей не использует, поэтому задержка влияет только на нагрузку.
+    //Первый сдвиг - через ту же задержку, а не на старте приложения
+    @Scheduled(fixedDelayString = "${shareit.booking.summary.roll-forward-delay-ms:60000}",
+            initialDelayString = "${shareit.booking.summary.roll-forward-delay-ms:60000}")
+    public synchronized void rollForward() {
+        int refreshed = 0;
+        List<Long> itemIds;
+        while (!(itemIds = summaryService.findItemIdsToRollForward(LocalDateTime.now(), batchSize)).isEmpty()) {
+            summaryService.refresh(itemIds);
+            refreshed += itemIds.size();
+        }
+        if (refreshed > 0) {
+            log.debug("ItemBookingSummaryChecker rollForward: сдвинуто сводок {}", refreshed);
+        }
+    }
+
+    //Плановая сверка, по умолчанию выключена ("-"). Расхождения исправляются и попадают в лог
+    @Scheduled(cron = "${shareit.booking.summary.check-cron:-}")
+    public void checkAndRepair() {
+        check(true);
+    }
+
+    public synchronized int rebuild() {
+        return check(true);
+    }
+
+    //Обходит все вещи по возрастанию id, возвращает число расхождений
+    public synchronized int check(boolean repair) {
+        int mismatches = 0;
+        int checked = 0;
+        Long afterId = 0L;
+        List<Long> itemIds;
+        while (!(itemIds = summaryService.findItemIdsAfter(afterId, batchSize)).isEmpty()) {
+            mismatches += summaryService.check(itemIds, repair);
+            checked += itemIds.size();
+            afterId = itemIds.get(itemIds.size() - 1);
+        }
+        log.info("ItemBookingSummaryChecker check: проверено вещей {}, расхождений {}, исправлены: {}",
+                checked, mismatches, repair);
+        return mismatches;
+    }
+}
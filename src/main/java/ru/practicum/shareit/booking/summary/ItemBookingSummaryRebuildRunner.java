@@ -0,0 +1,33 @@
+package ru.practicum.shareit.booking.summary;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+//Команда холодного старта: --shareit.booking.summary.rebuild-on-startup=true сверяет сводки всех вещей
+//с bookings и исправляет расхождения
+@Slf4j
+@Component
+public class ItemBookingSummaryRebuildRunner implements ApplicationRunner {
+
+    private final ItemBookingSummaryChecker summaryChecker;
+    private final boolean rebuildOnStartup;
+
+    @Autowired
+    public ItemBookingSummaryRebuildRunner(ItemBookingSummaryChecker summaryChecker,
+                                           @Value("${shareit.booking.summary.rebuild-on-startup:false}") boolean rebuildOnStartup) {
+        this.summaryChecker = summaryChecker;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (rebuildOnStartup) {
+            log.info("ItemBookingSummaryRebuildRunner: перестройка сводок броней вещей");
+            summaryChecker.rebuild();
+        }
+    }
+}
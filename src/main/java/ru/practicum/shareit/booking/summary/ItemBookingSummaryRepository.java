@@ -0,0 +1,56 @@
+package ru.practicum.shareit.booking.summary;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ItemBookingSummaryRepository extends JpaRepository<ItemBookingSummary, Long> {
+
+    //Пересчет блокирует строки до чтения броней: параллельное подтверждение либо уже закоммичено и попадет в пересчет,
+    //либо ждет блокировки и применит свое приращение поверх пересчитанной строки
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from ItemBookingSummary s where s.itemId in :itemIds")
+    List<ItemBookingSummary> findAllForUpdate(@Param("itemIds") Collection<Long> itemIds);
+
+    @Modifying
+    @Query("update ItemBookingSummary s set s.approvedCount = s.approvedCount + 1 where s.itemId = :itemId")
+    int incrementApprovedCount(@Param("itemId") Long itemId);
+
+    //Бронь становится последней, если началась позже текущей последней, при равном начале - если ее id меньше
+    @Modifying
+    @Query("update ItemBookingSummary s " +
+            "set s.lastBookingId = :bookingId, s.lastBookerId = :bookerId, s.lastStart = :start " +
+            "where s.itemId = :itemId and (s.lastStart is null or s.lastStart < :start " +
+            "  or (s.lastStart = :start and s.lastBookingId > :bookingId))")
+    int offerLast(@Param("itemId") Long itemId,
+                  @Param("bookingId") Long bookingId,
+                  @Param("bookerId") Long bookerId,
+                  @Param("start") LocalDateTime start);
+
+    //Бронь становится ближайшей, если начинается раньше текущей ближайшей, при равном начале - если ее id меньше
+    @Modifying
+    @Query("update ItemBookingSummary s " +
+            "set s.nextBookingId = :bookingId, s.nextBookerId = :bookerId, s.nextStart = :start " +
+            "where s.itemId = :itemId and (s.nextStart is null or s.nextStart > :start " +
+            "  or (s.nextStart = :start and s.nextBookingId > :bookingId))")
+    int offerNext(@Param("itemId") Long itemId,
+                  @Param("bookingId") Long bookingId,
+                  @Param("bookerId") Long bookerId,
+                  @Param("start") LocalDateTime start);
+
+    //Сводки, у которых ближайшая бронь уже началась и должна стать последней
+    @Query("select s.itemId from ItemBookingSummary s where s.nextStart <= :now")
+    List<Long> findItemIdsWithStartedNext(@Param("now") LocalDateTime now, Pageable pageable);
+
+    //Обход всех вещей для сверки, а не только сводок: у вещи строки может не быть вовсе
+    @Query("select i.id from Item i where i.id > :afterId order by i.id")
+    List<Long> findItemIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+}
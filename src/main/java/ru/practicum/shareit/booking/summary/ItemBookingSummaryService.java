@@ -0,0 +1,172 @@
+package ru.practicum.shareit.booking.summary;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.dto.ItemBookingCountDto;
+import ru.practicum.shareit.booking.dto.ItemBookingDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.request.model.Status;
+import ru.practicum.shareit.shared.pagination.OffsetBasedPageRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Ведет item_booking_summary: подтверждение брони меняет строку вещи условными UPDATE без чтения броней,
+//полный пересчет из bookings нужен только для вещей без строки, при сдвиге времени и при сверке
+@Slf4j
+@Service
+public class ItemBookingSummaryService {
+
+    private final ItemBookingSummaryRepository summaryRepository;
+    private final BookingRepository bookingRepository;
+
+    @Autowired
+    public ItemBookingSummaryService(ItemBookingSummaryRepository summaryRepository,
+                                     BookingRepository bookingRepository) {
+        this.summaryRepository = summaryRepository;
+        this.bookingRepository = bookingRepository;
+    }
+
+    //Сводки, которым можно верить на момент now. Вещи без строки или с начавшейся ближайшей бронью в ответ не попадают
+    @Transactional(readOnly = true)
+    public Map<Long, ItemBookingSummary> findFresh(Collection<Long> itemIds, LocalDateTime now) {
+        Map<Long, ItemBookingSummary> summaries = new HashMap<>();
+        for (ItemBookingSummary summary : summaryRepository.findAllById(itemIds)) {
+            if (summary.isFresh(now)) {
+                summaries.put(summary.getItemId(), summary);
+            }
+        }
+        return summaries;
+    }
+
+    //У новой вещи броней нет, пустая строка вставляется в той же транзакции и той же пачкой, что и вещи
+    @Transactional
+    public void itemsCreated(Collection<Long> itemIds) {
+        List<ItemBookingSummary> summaries = new ArrayList<>(itemIds.size());
+        for (Long itemId : itemIds) {
+            summaries.add(new ItemBookingSummary(itemId));
+        }
+        summaryRepository.saveAll(summaries);
+    }
+
+    @Transactional
+    public void approved(Booking booking) {
+        Long itemId = booking.getItem().getId();
+        if (summaryRepository.incrementApprovedCount(itemId) == 0) {
+            log.info("ItemBookingSummaryService approved: у вещи {} нет сводки, пересчет из броней", itemId);
+            refresh(List.of(itemId));
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (booking.getStart().isAfter(now)) {
+            summaryRepository.offerNext(itemId, booking.getId(), booking.getBooker().getId(), booking.getStart());
+        } else if (booking.getStart().isBefore(now)) {
+            summaryRepository.offerLast(itemId, booking.getId(), booking.getBooker().getId(), booking.getStart());
+        }
+    }
+
+    @Transactional
+    public void refresh(Collection<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        Map<Long, ItemBookingSummary> stored = lockStored(itemIds);
+        List<ItemBookingSummary> created = new ArrayList<>();
+        for (ItemBookingSummary expected : compute(itemIds, LocalDateTime.now()).values()) {
+            ItemBookingSummary summary = stored.get(expected.getItemId());
+            if (summary == null) {
+                created.add(expected);
+            } else {
+                summary.copyFrom(expected);
+            }
+        }
+        summaryRepository.saveAll(created);
+    }
+
+    //Сверяет строки вещей с bookings, при repair исправляет расхождения. Возвращает число расхождений
+    @Transactional
+    public int check(Collection<Long> itemIds, boolean repair) {
+        Map<Long, ItemBookingSummary> stored = repair ? lockStored(itemIds) : findStored(itemIds);
+        List<ItemBookingSummary> created = new ArrayList<>();
+        int mismatches = 0;
+        for (ItemBookingSummary expected : compute(itemIds, LocalDateTime.now()).values()) {
+            ItemBookingSummary summary = stored.get(expected.getItemId());
+            if (summary != null && summary.sameAs(expected)) {
+                continue;
+            }
+            mismatches++;
+            log.warn("ItemBookingSummaryService check: сводка вещи {} расходится с бронями: {}, ожидалось {}",
+                    expected.getItemId(), summary, expected);
+            if (!repair) {
+                continue;
+            }
+            if (summary == null) {
+                created.add(expected);
+            } else {
+                summary.copyFrom(expected);
+            }
+        }
+        summaryRepository.saveAll(created);
+        return mismatches;
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findItemIdsToRollForward(LocalDateTime now, int batchSize) {
+        return summaryRepository.findItemIdsWithStartedNext(now, new OffsetBasedPageRequest(0, batchSize));
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findItemIdsAfter(Long afterId, int batchSize) {
+        return summaryRepository.findItemIdsAfter(afterId, new OffsetBasedPageRequest(0, batchSize));
+    }
+
+    //Сводки по данным bookings: два запроса на весь список вещей, строка есть у каждой вещи из itemIds
+    private Map<Long, ItemBookingSummary> compute(Collection<Long> itemIds, LocalDateTime now) {
+        Map<Long, ItemBookingSummary> summaries = new HashMap<>();
+        for (Long itemId : itemIds) {
+            summaries.put(itemId, new ItemBookingSummary(itemId));
+        }
+        for (ItemBookingCountDto dto : bookingRepository.countOfItems(itemIds, Status.APPROVED)) {
+            summaries.get(dto.getItemId()).setApprovedCount(dto.getCount());
+        }
+        //Брони упорядочены по id: при совпадении start остается бронь с меньшим id
+        for (ItemBookingDto dto : bookingRepository.findLastAndNextOfItems(itemIds, Status.APPROVED, now)) {
+            ItemBookingSummary summary = summaries.get(dto.getItemId());
+            if (dto.getStart().isAfter(now)) {
+                if (summary.getNextBookingId() == null) {
+                    summary.setNextBookingId(dto.getId());
+                    summary.setNextBookerId(dto.getBookerId());
+                    summary.setNextStart(dto.getStart());
+                }
+            } else if (summary.getLastBookingId() == null) {
+                summary.setLastBookingId(dto.getId());
+                summary.setLastBookerId(dto.getBookerId());
+                summary.setLastStart(dto.getStart());
+            }
+        }
+        return summaries;
+    }
+
+    private Map<Long, ItemBookingSummary> lockStored(Collection<Long> itemIds) {
+        Map<Long, ItemBookingSummary> stored = new HashMap<>();
+        for (ItemBookingSummary summary : summaryRepository.findAllForUpdate(itemIds)) {
+            stored.put(summary.getItemId(), summary);
+        }
+        return stored;
+    }
+
+    private Map<Long, ItemBookingSummary> findStored(Collection<Long> itemIds) {
+        Map<Long, ItemBookingSummary> stored = new HashMap<>();
+        for (ItemBookingSummary summary : summaryRepository.findAllById(itemIds)) {
+            stored.put(summary.getItemId(), summary);
+        }
+        return stored;
+    }
+}
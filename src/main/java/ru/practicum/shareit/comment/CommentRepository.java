@@ -1,9 +1,62 @@
 package ru.practicum.shareit.comment;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.comment.dto.CommentDto;
+import ru.practicum.shareit.comment.dto.ItemCommentCountDto;
+import ru.practicum.shareit.comment.dto.ItemCommentView;
 import ru.practicum.shareit.comment.model.Comment;
+import ru.practicum.shareit.shared.pagination.OffsetBasedPageRequest;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
+
+    String SELECT_DTO = "select new ru.practicum.shareit.comment.dto.CommentDto(c.id, c.text, a.name, c.created) " +
+            "from Comment c join c.author a where c.item.id = :itemId";
+
+    String ORDER = " order by c.created desc, c.id desc";
+
+    //Не больше limit последних отзывов каждой вещи из itemIds вместе с именами авторов за один запрос, от старых к новым.
+    //Для каждой вещи сначала берется граница - limit-й с конца отзыв (created, id): это limit строк индекса
+    //comments (item_id, created DESC, id DESC). Затем отзывы читаются диапазоном индекса от нее, а не всей вещью.
+    //Если отзывов меньше limit, границы нет и читаются все отзывы вещи.
+    //OFFSET 0 не дает PostgreSQL раскрыть подзапрос границ и считать их заново для каждой строки comments,
+    //а верхняя граница top_created превращает условие в диапазон: иначе на вещах с тысячами отзывов
+    //планировщик оценивает выборку в треть вещи и уходит в полный просмотр comments
+    @Query(value = "SELECT b.item_id AS itemId, c.id AS id, c.text AS text, u.name AS authorName, c.created AS created " +
+            "FROM (SELECT i.id AS item_id, " +
+            "             (SELECT l.created FROM comments l WHERE l.item_id = i.id " +
+            "              ORDER BY l.created DESC, l.id DESC LIMIT 1 OFFSET (:limit - 1)) AS bound_created, " +
+            "             (SELECT l.id FROM comments l WHERE l.item_id = i.id " +
+            "              ORDER BY l.created DESC, l.id DESC LIMIT 1 OFFSET (:limit - 1)) AS bound_id, " +
+            "             (SELECT MAX(l.created) FROM comments l WHERE l.item_id = i.id) AS top_created " +
+            "      FROM items i WHERE i.id IN (:itemIds) OFFSET 0 ROWS) b " +
+            "JOIN comments c ON c.item_id = b.item_id " +
+            "     AND c.created BETWEEN COALESCE(b.bound_created, TIMESTAMP '0001-01-01 00:00:00') AND b.top_created " +
+            "     AND (b.bound_id IS NULL OR c.created > b.bound_created OR c.id >= b.bound_id) " +
+            "JOIN users u ON u.id = c.author_id " +
+            "ORDER BY b.item_id, c.created, c.id",
+            nativeQuery = true)
+    List<ItemCommentView> findLatestOfItems(@Param("itemIds") Collection<Long> itemIds, @Param("limit") int limit);
+
+    //Считается по диапазонам item_id того же индекса
+    @Query("select new ru.practicum.shareit.comment.dto.ItemCommentCountDto(c.item.id, count(c)) " +
+            "from Comment c where c.item.id in :itemIds group by c.item.id")
+    List<ItemCommentCountDto> countOfItems(@Param("itemIds") Collection<Long> itemIds);
+
+    @Query(SELECT_DTO + ORDER)
+    List<CommentDto> findAllOfItem(@Param("itemId") Long itemId, OffsetBasedPageRequest pageable);
+
+    //Продолжение выдачи после курсора (created, id) вместо OFFSET
+    @Query(SELECT_DTO + " and (c.created < :cursorCreated or (c.created = :cursorCreated and c.id < :cursorId))" + ORDER)
+    List<CommentDto> findAllOfItemAfterCursor(@Param("itemId") Long itemId,
+                                              @Param("cursorCreated") LocalDateTime cursorCreated,
+                                              @Param("cursorId") Long cursorId,
+                                              OffsetBasedPageRequest pageable);
 }
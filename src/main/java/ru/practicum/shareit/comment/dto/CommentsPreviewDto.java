@@ -0,0 +1,18 @@
+package ru.practicum.shareit.comment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+//Последние отзывы вещи и общее их число: остальные отзывы читаются постранично через /items/{itemId}/comments
+@Getter
+@AllArgsConstructor
+public class CommentsPreviewDto {
+
+    public static final CommentsPreviewDto EMPTY = new CommentsPreviewDto(List.of(), 0L);
+
+    private List<CommentDto> latest;
+
+    private Long total;
+}
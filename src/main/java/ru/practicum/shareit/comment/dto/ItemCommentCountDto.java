@@ -0,0 +1,13 @@
+package ru.practicum.shareit.comment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ItemCommentCountDto {
+
+    private Long itemId;
+
+    private Long count;
+}
@@ -0,0 +1,17 @@
+package ru.practicum.shareit.comment.dto;
+
+import java.time.LocalDateTime;
+
+//Строка нативного запроса последних отзывов: JPQL не умеет оконные функции, поэтому вместо конструктора - проекция
+public interface ItemCommentView {
+
+    Long getItemId();
+
+    Long getId();
+
+    String getText();
+
+    String getAuthorName();
+
+    LocalDateTime getCreated();
+}
@@ -2,21 +2,32 @@ package ru.practicum.shareit.item;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.comment.dto.CommentDto;
 import ru.practicum.shareit.comment.dto.CreateCommentDto;
 import ru.practicum.shareit.comment.mapper.CommentMapper;
 import ru.practicum.shareit.comment.model.Comment;
 import ru.practicum.shareit.item.dto.CreateItemDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.importing.ItemImportReader;
+import ru.practicum.shareit.item.importing.ItemImporter;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.shared.pagination.KeysetCursor;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
+import java.io.IOException;
 import java.util.Comparator;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Slf4j
 @RestController
@@ -24,15 +35,23 @@ import java.util.List;
 @Validated
 public class ItemController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final ItemService itemService;
     private final ItemMapper itemMapper;
     private final CommentMapper commentMapper;
+    private final ItemImporter itemImporter;
+    private final int commentsPreviewSize;
 
     @Autowired
-    public ItemController(ItemService itemService, ItemMapper itemMapper, CommentMapper commentMapper) {
+    public ItemController(ItemService itemService, ItemMapper itemMapper, CommentMapper commentMapper,
+                          ItemImporter itemImporter,
+                          @Value("${shareit.item.comments.preview-size:10}") int commentsPreviewSize) {
         this.itemService = itemService;
         this.itemMapper = itemMapper;
         this.commentMapper = commentMapper;
+        this.itemImporter = itemImporter;
+        this.commentsPreviewSize = commentsPreviewSize;
     }
 
     @GetMapping
@@ -41,7 +60,7 @@ public class ItemController {
                                         @RequestParam(required = false, defaultValue = "20") @Min(1) final int size) {
         log.info("ItemController getAll: запрос на получение всех вещей от пользователя с id {}", userId);
         List<Item> itemList = itemService.getAllByUserId(userId, from, size);
-        List<ItemDto> response = itemMapper.modelListToDtoList(itemList);
+        List<ItemDto> response = itemMapper.modelListToDtoList(itemList, itemService.getCommentsPreview(ids(itemList), commentsPreviewSize));
         response.sort(Comparator.comparing(ItemDto::getId));//В тестах иначе не проходит, по идее это не нужно
         log.info("ItemController getAll: выполнен запрос на получение всех вещей от пользователя с id {}", userId);
         return response;
@@ -53,7 +72,7 @@ public class ItemController {
             @RequestHeader("X-Sharer-User-Id") final Long userId) {
         log.info("ItemController getById: запрос на получение вещи с id {}", itemId);
         Item item = itemService.getById(itemId, userId);
-        ItemDto response = itemMapper.modelToDto(item);
+        ItemDto response = itemMapper.modelToDto(item, itemService.getCommentsPreview(List.of(itemId), commentsPreviewSize));
         log.info("ItemController getById: выполнен запрос на получение вещи с id {}", itemId);
         return response;
     }
@@ -65,11 +84,27 @@ public class ItemController {
         log.info("ItemController create: запрос на создание вещи {}", createItemDto);
         Item itemToCreate = itemMapper.createDtoToModel(createItemDto);
         Item item = itemService.create(itemToCreate, userId);
-        ItemDto response = itemMapper.modelToDto(item);
+        ItemDto response = itemMapper.modelToDto(item, itemService.getCommentsPreview(List.of(item.getId()), commentsPreviewSize));
         log.info("ItemController create: запрос на создание вещи {}", response);
         return response;
     }
 
+    //Каталог владельца в NDJSON или CSV с полями CreateItemDto. Тело читается и сохраняется по мере поступления,
+    //в ответ NDJSON-строками идут ошибки строк и прогресс после каждого чанка
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, ItemImporter.TEXT_CSV_VALUE})
+    public ResponseEntity<StreamingResponseBody> importItems(
+            @RequestHeader("X-Sharer-User-Id") final Long userId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) final MediaType contentType,
+            final HttpServletRequest request) throws IOException {
+        log.info("ItemController importItems: запрос на импорт вещей владельца {} в формате {}", userId, contentType);
+        itemService.checkUserExists(userId);
+        ItemImportReader reader = itemImporter.reader(contentType, request.getInputStream());
+        StreamingResponseBody body = outputStream -> itemImporter.importItems(reader, userId, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @PatchMapping("/{itemId}")
     public ItemDto update(
             @RequestBody @Valid final ItemDto itemDto,
@@ -78,7 +113,7 @@ public class ItemController {
         log.info("ItemController update: запрос на обновление вещи с id {}", itemId);
         Item newItem = itemMapper.updateDtoToModel(itemDto);
         Item updatedItem = itemService.update(newItem, itemId, userId);
-        ItemDto response = itemMapper.modelToDto(updatedItem);
+        ItemDto response = itemMapper.modelToDto(updatedItem, itemService.getCommentsPreview(List.of(itemId), commentsPreviewSize));
         log.info("ItemController update: выполнен запрос на обновление вещи с id {}", itemId);
         return response;
     }
@@ -91,7 +126,7 @@ public class ItemController {
     ) {
         log.info("ItemController search: запрос на поиск вещей по тексту \"{}\"", text);
         List<Item> items = itemService.search(text, from, size);
-        List<ItemDto> response = itemMapper.modelListToDtoList(items);
+        List<ItemDto> response = itemMapper.modelListToDtoList(items, itemService.getCommentsPreview(ids(items), commentsPreviewSize));
         log.info("ItemController search: выполнен запрос на поиск вещей по тексту \"{}\"", text);
         return response;
     }
@@ -108,4 +143,27 @@ public class ItemController {
         log.info("ItemController search: выполнен запрос на оставление комментария от пользователя {}", userId);
         return response;
     }
+
+    //Все отзывы вещи от новых к старым. Курсор следующей страницы - в заголовке X-Next-Cursor, пока страница полная
+    @GetMapping("/{itemId}/comments")
+    public ResponseEntity<List<CommentDto>> getComments(
+            @PathVariable(name = "itemId") final Long itemId,
+            @RequestParam(required = false, defaultValue = "20") @Min(1) final int size,
+            @RequestParam(required = false) final String cursor) {
+        log.info("ItemController getComments: запрос на получение отзывов вещи с id {}", itemId);
+        List<CommentDto> response = itemService.getComments(
+                itemId, cursor == null ? null : KeysetCursor.decode(cursor), size);
+        log.info("ItemController getComments: выполнен запрос на получение отзывов вещи с id {}", itemId);
+        if (response.size() < size) {
+            return ResponseEntity.ok(response);
+        }
+        CommentDto last = response.get(response.size() - 1);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, new KeysetCursor(last.getCreated(), last.getId()).encode())
+                .body(response);
+    }
+
+    private static List<Long> ids(List<Item> items) {
+        return items.stream().map(Item::getId).collect(Collectors.toList());
+    }
 }
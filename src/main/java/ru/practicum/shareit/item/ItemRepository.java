@@ -2,19 +2,45 @@ package ru.practicum.shareit.item;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.item.dto.ItemRequestResponseDto;
+import ru.practicum.shareit.item.dto.ItemSearchDocumentDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.shared.pagination.OffsetBasedPageRequest;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ItemRepository extends JpaRepository<Item, Long> {
     List<Item> findAllByOwnerId(Long userId, OffsetBasedPageRequest pageable);
 
+    //Вещи, которые удаление владельца снимет каскадом в БД
+    @Query("select i.id from Item i where i.owner.id = :ownerId")
+    List<Long> findIdsByOwnerId(@Param("ownerId") Long ownerId);
+
     @Query("select i from Item i " +
             "where ((upper(i.name) like upper(concat('%', ?1, '%')) " +
             " or upper(i.description) like upper(concat('%', ?1, '%'))) " +
             "and i.available IS TRUE)")
     List<Item> search(String text, OffsetBasedPageRequest pageable);
+
+    //Тот же поиск подстроки, но через ILIKE: на PostgreSQL его обслуживают GIN-индексы pg_trgm из миграций db/migration/postgresql
+    @Query(value = "SELECT * FROM items i " +
+            "WHERE (i.name ILIKE CONCAT('%', :text, '%') OR i.description ILIKE CONCAT('%', :text, '%')) " +
+            "AND i.is_available IS TRUE " +
+            "ORDER BY i.id",
+            nativeQuery = true)
+    List<Item> searchByTrigramIndex(@Param("text") String text, OffsetBasedPageRequest pageable);
+
+    //Поисковый индекс в памяти строится и сверяется чанками по id, без загрузки сущностей в контекст и кэш
+    @Query("select new ru.practicum.shareit.item.dto.ItemSearchDocumentDto(i.id, i.name, i.description, i.available) " +
+            "from Item i where i.id > :afterId order by i.id")
+    List<ItemSearchDocumentDto> findSearchDocumentsAfter(@Param("afterId") Long afterId, OffsetBasedPageRequest pageable);
+
+    //Ответы на страницу запросов одним запросом, сразу в DTO: вещи и их владельцы как сущности не загружаются
+    @Query("select new ru.practicum.shareit.item.dto.ItemRequestResponseDto(i.id, i.name, i.description, i.available, i.request.id) " +
+            "from Item i where i.request.id in :requestIds order by i.id")
+    List<ItemRequestResponseDto> findAnswersToRequests(@Param("requestIds") Collection<Long> requestIds);
 }
@@ -1,9 +1,14 @@
 package ru.practicum.shareit.item;
 
+import ru.practicum.shareit.comment.dto.CommentDto;
+import ru.practicum.shareit.comment.dto.CommentsPreviewDto;
 import ru.practicum.shareit.comment.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.shared.pagination.KeysetCursor;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface ItemService {
 
@@ -13,9 +18,17 @@ public interface ItemService {
 
     Item create(Item itemToCreate, Long userId);
 
+    void checkUserExists(Long userId);
+
+    List<String> importChunk(List<Item> itemsToCreate, Long ownerId);
+
     Item update(Item newItem, Long itemId, Long userId);
 
     List<Item> search(String text, Long from, Integer size);
 
     Comment addComment(Long userId, Long itemId, Comment comment);
+
+    Map<Long, CommentsPreviewDto> getCommentsPreview(Collection<Long> itemIds, int limit);
+
+    List<CommentDto> getComments(Long itemId, KeysetCursor cursor, Integer size);
 }
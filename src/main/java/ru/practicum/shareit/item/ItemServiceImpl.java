@@ -2,27 +2,46 @@ package ru.practicum.shareit.item;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.dto.ItemBookingDto;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.summary.ItemBookingSummary;
+import ru.practicum.shareit.booking.summary.ItemBookingSummaryService;
 import ru.practicum.shareit.comment.CommentRepository;
+import ru.practicum.shareit.comment.dto.CommentDto;
+import ru.practicum.shareit.comment.dto.CommentsPreviewDto;
+import ru.practicum.shareit.comment.dto.ItemCommentCountDto;
+import ru.practicum.shareit.comment.dto.ItemCommentView;
 import ru.practicum.shareit.comment.exception.CommentDeniedException;
 import ru.practicum.shareit.comment.model.Comment;
+import ru.practicum.shareit.item.event.ItemChangedEvent;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.ItemSearchEngine;
 import ru.practicum.shareit.request.ItemRequestRepository;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.model.Status;
 import ru.practicum.shareit.shared.exception.NotFoundException;
+import ru.practicum.shareit.shared.pagination.KeysetCursor;
 import ru.practicum.shareit.shared.pagination.OffsetBasedPageRequest;
+import ru.practicum.shareit.user.KnownUsers;
 import ru.practicum.shareit.user.UserRepository;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -33,29 +52,34 @@ public class ItemServiceImpl implements ItemService {
     private final BookingRepository bookingRepository;
     private final CommentRepository commentRepository;
     private final ItemRequestRepository itemRequestRepository;
+    private final ItemSearchEngine itemSearchEngine;
+    private final ApplicationEventPublisher eventPublisher;
+    private final KnownUsers knownUsers;
+    private final ItemBookingSummaryService itemBookingSummaryService;
 
     @Autowired
-    public ItemServiceImpl(ItemRepository repository, UserRepository userRepository, BookingRepository bookingRepository, CommentRepository commentRepository, ItemRequestRepository itemRequestRepository) {
+    public ItemServiceImpl(ItemRepository repository, UserRepository userRepository, BookingRepository bookingRepository, CommentRepository commentRepository, ItemRequestRepository itemRequestRepository, ItemSearchEngine itemSearchEngine, ApplicationEventPublisher eventPublisher, KnownUsers knownUsers, ItemBookingSummaryService itemBookingSummaryService) {
         this.itemRepository = repository;
         this.userRepository = userRepository;
         this.bookingRepository = bookingRepository;
         this.commentRepository = commentRepository;
         this.itemRequestRepository = itemRequestRepository;
+        this.itemSearchEngine = itemSearchEngine;
+        this.eventPublisher = eventPublisher;
+        this.knownUsers = knownUsers;
+        this.itemBookingSummaryService = itemBookingSummaryService;
     }
 
     @Override
     @Transactional
     public List<Item> getAllByUserId(final Long userId, Long from, Integer size) {
         log.info("ItemService getAllByUserId: запрос на получение всех вещей пользователя с id {}", userId);
-        Optional<User> optionalUser = userRepository.findById(userId);
-        if (optionalUser.isEmpty()) {
+        if (!knownUsers.exists(userId)) {
             throw new NotFoundException("При получении списка вещей передан несуществующий id пользователя");
         }
         OffsetBasedPageRequest pageable = new OffsetBasedPageRequest(from, size);
         List<Item> items = itemRepository.findAllByOwnerId(userId, pageable);
-        for (Item item : items) {
-            getBookingsOfItem(item);
-        }
+        setLastAndNextBookings(items);
         log.info("ItemService getAllByUserId: запрос на получение всех вещей пользователя с id {}", userId);
         return items;
     }
@@ -69,34 +93,63 @@ public class ItemServiceImpl implements ItemService {
         }
         Item item = optionalItem.get();
         if (Objects.equals(item.getOwner().getId(), userId)) {
-            getBookingsOfItem(item);
+            setLastAndNextBookings(List.of(item));
         }
         log.info("ItemService getById: выполнен запрос на получение вещи по id {}", itemId);
         return item;
     }
 
-    private Item getBookingsOfItem(Item item) {
-        List<Booking> bookings = item.getBookings();
+    //Последняя и ближайшая брони берутся из сводки вещи одним чтением по первичному ключу.
+    //Вещи без сводки или с уже начавшейся ближайшей бронью считаются по bookings, как до появления сводок
+    private void setLastAndNextBookings(List<Item> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        Map<Long, Item> itemsById = new HashMap<>();
+        for (Item item : items) {
+            itemsById.put(item.getId(), item);
+        }
         LocalDateTime now = LocalDateTime.now();
-        LocalDateTime last = LocalDateTime.MIN;
-        LocalDateTime next = LocalDateTime.MAX;
-        Booking nextBooking = null;
-        Booking lastBooking = null;
-        for (Booking booking : bookings) {
-            if (booking.getStart().isAfter(now) && booking.getStart().isBefore(next) && booking.getStatus().equals(Status.APPROVED)) {
-                next = booking.getStart();
-                nextBooking = booking;
-            } else if (booking.getStart().isBefore(now) && booking.getStart().isAfter(last) && booking.getStatus().equals(Status.APPROVED)) {
-                last = booking.getStart();
-                lastBooking = booking;
+        Map<Long, ItemBookingSummary> summaries = itemBookingSummaryService.findFresh(itemsById.keySet(), now);
+        Set<Long> staleItemIds = new HashSet<>(itemsById.keySet());
+        for (ItemBookingSummary summary : summaries.values()) {
+            Item item = itemsById.get(summary.getItemId());
+            item.setLastBooking(approvedBooking(summary.getLastBookingId(), summary.getLastBookerId(), summary.getLastStart()));
+            item.setNextBooking(approvedBooking(summary.getNextBookingId(), summary.getNextBookerId(), summary.getNextStart()));
+            staleItemIds.remove(summary.getItemId());
+        }
+        if (!staleItemIds.isEmpty()) {
+            List<ItemBookingDto> bookings = bookingRepository.findLastAndNextOfItems(staleItemIds, Status.APPROVED, now);
+            //При совпадении start у нескольких броней берется бронь с меньшим id, как и при обходе коллекции раньше
+            for (ItemBookingDto dto : bookings) {
+                Item item = itemsById.get(dto.getItemId());
+                Booking booking = approvedBooking(dto.getId(), dto.getBookerId(), dto.getStart());
+                if (dto.getStart().isAfter(now)) {
+                    if (item.getNextBooking() == null) {
+                        item.setNextBooking(booking);
+                    }
+                } else if (item.getLastBooking() == null) {
+                    item.setLastBooking(booking);
+                }
             }
         }
-        if (lastBooking == null) {
-            lastBooking = nextBooking;
+        for (Item item : items) {
+            if (item.getLastBooking() == null) {
+                item.setLastBooking(item.getNextBooking());
+            }
         }
-        item.setLastBooking(lastBooking);
-        item.setNextBooking(nextBooking);
-        return item;
+    }
+
+    private static Booking approvedBooking(Long id, Long bookerId, LocalDateTime start) {
+        if (id == null) {
+            return null;
+        }
+        return Booking.builder()
+                .id(id)
+                .start(start)
+                .booker(new User(bookerId))
+                .status(Status.APPROVED)
+                .build();
     }
 
     @Override
@@ -112,18 +165,65 @@ public class ItemServiceImpl implements ItemService {
         } else {
             itemToCreate.setRequest(null);
         }
-        Optional<User> optionalUser = userRepository.findById(userId);
-        if (optionalUser.isEmpty()) {
+        if (!knownUsers.exists(userId)) {
             String message = String.format("При запросе на создание вещи передан несуществующий id владельца %d", userId);
             throw new NotFoundException(message);
         }
-        User owner = optionalUser.get();
-        itemToCreate.setOwner(owner);
+        //В ответе владелец не нужен, для внешнего ключа достаточно ссылки
+        itemToCreate.setOwner(userRepository.getReferenceById(userId));
         Item createdItem = itemRepository.save(itemToCreate);
+        itemBookingSummaryService.itemsCreated(List.of(createdItem.getId()));
+        eventPublisher.publishEvent(new ItemChangedEvent(createdItem.getId()));
         log.info("ItemService create: выполнен запрос на создание вещи {} с id пользователя {}", createdItem, userId);
         return createdItem;
     }
 
+    @Override
+    public void checkUserExists(Long userId) {
+        if (!knownUsers.exists(userId)) {
+            String message = String.format("При запросе на импорт вещей передан несуществующий id владельца %d", userId);
+            throw new NotFoundException(message);
+        }
+    }
+
+    //Чанк импорта: запросы проверяются одним запросом на весь чанк, вещи сохраняются одной пачкой.
+    //Возвращает ошибку для каждой вещи по порядку, null - вещь создана
+    @Override
+    @Transactional
+    public List<String> importChunk(List<Item> itemsToCreate, Long ownerId) {
+        checkUserExists(ownerId);
+        Set<Long> requestIds = itemsToCreate.stream()
+                .map(item -> item.getRequest().getId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<Long> existingRequestIds = requestIds.isEmpty()
+                ? Set.of()
+                : itemRequestRepository.findExistingIds(requestIds);
+        User owner = userRepository.getReferenceById(ownerId);
+        List<String> errors = new ArrayList<>(itemsToCreate.size());
+        List<Item> accepted = new ArrayList<>();
+        for (Item item : itemsToCreate) {
+            Long requestId = item.getRequest().getId();
+            if (requestId != null && !existingRequestIds.contains(requestId)) {
+                errors.add(String.format("При запросе на импорт вещи передан несуществующий запрос %d", requestId));
+                continue;
+            }
+            item.setRequest(requestId == null ? null : itemRequestRepository.getReferenceById(requestId));
+            item.setOwner(owner);
+            accepted.add(item);
+            errors.add(null);
+        }
+        itemRepository.saveAll(accepted);
+        List<Long> createdIds = new ArrayList<>(accepted.size());
+        for (Item item : accepted) {
+            createdIds.add(item.getId());
+            eventPublisher.publishEvent(new ItemChangedEvent(item.getId()));
+        }
+        itemBookingSummaryService.itemsCreated(createdIds);
+        log.info("ItemService importChunk: импортировано вещей {} из {} владельцу {}", accepted.size(), itemsToCreate.size(), ownerId);
+        return errors;
+    }
+
     @Override
     @Transactional
     public Item update(final Item newItem, final Long itemId, final Long userId) {
@@ -158,6 +258,7 @@ public class ItemServiceImpl implements ItemService {
             itemToUpdate.setDescription(description);
         }
         Item updatedItem = itemRepository.save(itemToUpdate);
+        eventPublisher.publishEvent(new ItemChangedEvent(itemId));
         log.info("ItemService update: выполнен запрос на обновление вещи с id {}", itemId);
         return updatedItem;
     }
@@ -171,7 +272,7 @@ public class ItemServiceImpl implements ItemService {
         } else {
             String lowerCaseText = text.toLowerCase();
             OffsetBasedPageRequest pageable = new OffsetBasedPageRequest(from, size);
-            items = itemRepository.search(lowerCaseText, pageable);
+            items = itemSearchEngine.search(lowerCaseText, pageable);
         }
         log.info("ItemService search: выполнен запрос на поиск вещей по тексту \"{}\"", text);
         return items;
@@ -180,24 +281,65 @@ public class ItemServiceImpl implements ItemService {
     @Override
     @Transactional
     public Comment addComment(Long userId, Long itemId, Comment comment) {
-        Optional<User> user0 = userRepository.findById(userId);
-        if (user0.isEmpty()) {
+        //Пользователь проверяется по кэшу известных id, вещь читается из кэша второго уровня:
+        //в обычном случае обе проверки обходятся без запросов, и в БД идет только проба права на отзыв
+        if (!knownUsers.exists(userId)) {
             throw new NotFoundException("При запросе на оставления комментария передан несуществующий id пользователя");
         }
-        User user = user0.get();
         Optional<Item> item0 = itemRepository.findById(itemId);
         if (item0.isEmpty()) {
             throw new NotFoundException("При запросе на оставления комментария передан несуществующий id вещи");
         }
         Item item = item0.get();
-        List<Booking> bookings = bookingRepository.findByItemAndBooker(item, user);
         LocalDateTime now = LocalDateTime.now();
-        if (bookings.isEmpty() || bookings.stream().map(Booking::getStatus).anyMatch(b -> !b.equals(Status.APPROVED))
-                || bookings.stream().map(Booking::getStart).allMatch(start -> start.isAfter(now))) {
+        if (!bookingRepository.existsStartedOfBookerOnItem(userId, itemId, Status.APPROVED, now)) {
             throw new CommentDeniedException("Запрос на оставления комментария отправлен от пользователе, не бравшего вещь в аренду");
         }
+        //Отзывы выдаются по created, без времени отзыв выпал бы из постраничной выдачи
+        if (comment.getCreated() == null) {
+            comment.setCreated(now);
+        }
         comment.setItem(item);
-        comment.setAuthor(user);
+        //Имя автора для ответа подтянется из кэша второго уровня при обращении к ссылке
+        comment.setAuthor(userRepository.getReferenceById(userId));
         return commentRepository.save(comment);
     }
+
+    //Последние limit отзывов и их общее число для каждой вещи страницы: два запроса независимо от числа отзывов
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, CommentsPreviewDto> getCommentsPreview(Collection<Long> itemIds, int limit) {
+        if (itemIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, List<CommentDto>> latest = new HashMap<>();
+        for (ItemCommentView view : commentRepository.findLatestOfItems(itemIds, limit)) {
+            latest.computeIfAbsent(view.getItemId(), id -> new ArrayList<>()).add(CommentDto.builder()
+                    .id(view.getId())
+                    .text(view.getText())
+                    .authorName(view.getAuthorName())
+                    .created(view.getCreated())
+                    .build());
+        }
+        Map<Long, CommentsPreviewDto> previews = new HashMap<>();
+        for (ItemCommentCountDto dto : commentRepository.countOfItems(itemIds)) {
+            previews.put(dto.getItemId(), new CommentsPreviewDto(latest.get(dto.getItemId()), dto.getCount()));
+        }
+        return previews;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<CommentDto> getComments(Long itemId, KeysetCursor cursor, Integer size) {
+        //Вещь лежит в кэше второго уровня, проверка обычно обходится без запроса
+        if (itemRepository.findById(itemId).isEmpty()) {
+            String message = String.format("При запросе на получение отзывов передан несуществующий id вещи %d", itemId);
+            throw new NotFoundException(message);
+        }
+        OffsetBasedPageRequest pageable = new OffsetBasedPageRequest(0, size);
+        if (cursor == null) {
+            return commentRepository.findAllOfItem(itemId, pageable);
+        }
+        return commentRepository.findAllOfItemAfterCursor(itemId, cursor.getStart(), cursor.getId(), pageable);
+    }
 }
@@ -34,6 +34,9 @@ public class ItemDto {
 
     private Long requestId;
 
+    //Последние отзывы, не больше shareit.item.comments.preview-size; все отзывы - GET /items/{itemId}/comments
     @JsonProperty("comments")
     List<CommentDto> comments;
+
+    private Long commentsCount;
 }
@@ -0,0 +1,20 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//Отправляется после каждого чанка импорта, последняя строка ответа - с finished = true
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemImportProgressDto {
+
+    private long processed;
+
+    private long created;
+
+    private long failed;
+
+    private boolean finished;
+}
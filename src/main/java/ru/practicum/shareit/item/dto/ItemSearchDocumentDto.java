@@ -0,0 +1,18 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//Поля вещи, по которым строится поисковый индекс в памяти
+@Getter
+@AllArgsConstructor
+public class ItemSearchDocumentDto {
+
+    private Long id;
+
+    private String name;
+
+    private String description;
+
+    private Boolean available;
+}
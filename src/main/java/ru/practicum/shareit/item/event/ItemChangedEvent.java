@@ -0,0 +1,14 @@
+package ru.practicum.shareit.item.event;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+//Публикуется при создании и изменении вещи. Слушатели получают его только после коммита транзакции
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class ItemChangedEvent {
+
+    private final Long itemId;
+}
@@ -0,0 +1,14 @@
+package ru.practicum.shareit.item.exception;
+
+import lombok.Getter;
+
+@Getter
+public class ImportLineTooLongException extends RuntimeException {
+
+    private final long line;
+
+    public ImportLineTooLongException(long line, int maxLength) {
+        super(String.format("Строка %d длиннее %d символов", line, maxLength));
+        this.line = line;
+    }
+}
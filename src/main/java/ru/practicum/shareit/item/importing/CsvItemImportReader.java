@@ -0,0 +1,144 @@
+package ru.practicum.shareit.item.importing;
+
+import ru.practicum.shareit.item.dto.CreateItemDto;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Первая строка - заголовок с полями CreateItemDto в любом порядке, requestId можно опустить.
+//Значение в кавычках может содержать запятые и удвоенные кавычки, перевод строки внутри значения не поддерживается
+class CsvItemImportReader implements ItemImportReader {
+
+    private static final String NAME = "name";
+    private static final String DESCRIPTION = "description";
+    private static final String AVAILABLE = "available";
+    private static final String REQUEST_ID = "requestId";
+    private static final List<String> REQUIRED_COLUMNS = List.of(NAME, DESCRIPTION, AVAILABLE);
+
+    private final ImportLineReader reader;
+    private Map<String, Integer> columns;
+    private boolean finished;
+
+    CsvItemImportReader(ImportLineReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public ItemImportRow next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (columns == null) {
+            String error = readHeader();
+            if (error != null) {
+                //Без заголовка остальные строки разобрать нельзя
+                finished = true;
+                return ItemImportRow.failed(1, error);
+            }
+        }
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) {
+                finished = true;
+                return null;
+            }
+        } while (text.isBlank());
+        return parseRow(text);
+    }
+
+    private String readHeader() throws IOException {
+        String text = reader.readLine();
+        if (text == null) {
+            return "Пустой файл: нет строки заголовка";
+        }
+        List<String> names = split(text);
+        if (names == null) {
+            return "Некорректный заголовок CSV: незакрытая кавычка";
+        }
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            header.put(names.get(i).trim(), i);
+        }
+        for (String column : REQUIRED_COLUMNS) {
+            if (!header.containsKey(column)) {
+                return "В заголовке CSV нет колонки " + column;
+            }
+        }
+        columns = header;
+        return null;
+    }
+
+    private ItemImportRow parseRow(String text) {
+        long line = reader.getLine();
+        List<String> values = split(text);
+        if (values == null) {
+            return ItemImportRow.failed(line, "Незакрытая кавычка");
+        }
+        if (values.size() != columns.size()) {
+            return ItemImportRow.failed(line, String.format("Ожидалось значений %d, передано %d", columns.size(), values.size()));
+        }
+        String available = value(values, AVAILABLE);
+        if (available != null && !"true".equalsIgnoreCase(available) && !"false".equalsIgnoreCase(available)) {
+            return ItemImportRow.failed(line, "available: ожидается true или false");
+        }
+        String requestId = value(values, REQUEST_ID);
+        Long parsedRequestId;
+        try {
+            parsedRequestId = requestId == null ? null : Long.valueOf(requestId);
+        } catch (NumberFormatException e) {
+            return ItemImportRow.failed(line, "requestId: ожидается число");
+        }
+        CreateItemDto item = CreateItemDto.builder()
+                .name(value(values, NAME))
+                .description(value(values, DESCRIPTION))
+                .available(available == null ? null : Boolean.valueOf(available))
+                .requestId(parsedRequestId)
+                .build();
+        return ItemImportRow.parsed(line, item);
+    }
+
+    //Пустое значение - отсутствующее, его отклонит валидация DTO
+    private String value(List<String> values, String column) {
+        Integer index = columns.get(column);
+        if (index == null || values.get(index).isEmpty()) {
+            return null;
+        }
+        return values.get(index);
+    }
+
+    //null, если кавычка не закрыта
+    private static List<String> split(String text) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    value.append(c);
+                } else if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
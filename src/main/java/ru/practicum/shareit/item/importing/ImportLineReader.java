@@ -0,0 +1,50 @@
+package ru.practicum.shareit.item.importing;
+
+import ru.practicum.shareit.item.exception.ImportLineTooLongException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+//BufferedReader.readLine() копит строку целиком, сколько бы она ни весила. Здесь строка читается посимвольно
+//из буфера и обрывается исключением, как только превысит maxLength
+class ImportLineReader {
+
+    private final BufferedReader reader;
+    private final int maxLength;
+    private final StringBuilder text = new StringBuilder();
+    private long line;
+
+    ImportLineReader(BufferedReader reader, int maxLength) {
+        this.reader = reader;
+        this.maxLength = maxLength;
+    }
+
+    //Номер последней прочитанной строки с единицы
+    long getLine() {
+        return line;
+    }
+
+    //null, когда файл закончился. Концы строк - \n, \r\n и \r, как у BufferedReader
+    String readLine() throws IOException {
+        text.setLength(0);
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        line++;
+        while (c != -1 && c != '\n' && c != '\r') {
+            if (text.length() == maxLength) {
+                throw new ImportLineTooLongException(line, maxLength);
+            }
+            text.append((char) c);
+            c = reader.read();
+        }
+        if (c == '\r') {
+            reader.mark(1);
+            if (reader.read() != '\n') {
+                reader.reset();
+            }
+        }
+        return text.toString();
+    }
+}
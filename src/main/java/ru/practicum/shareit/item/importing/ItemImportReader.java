@@ -0,0 +1,10 @@
+package ru.practicum.shareit.item.importing;
+
+import java.io.IOException;
+
+//Построчное чтение файла импорта: в памяти только текущая строка, размер файла не ограничен
+public interface ItemImportReader {
+
+    //null, когда файл закончился
+    ItemImportRow next() throws IOException;
+}
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.item.importing;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.practicum.shareit.item.dto.CreateItemDto;
+
+//Строка файла импорта: разобранная вещь или причина, по которой строку не удалось разобрать
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ItemImportRow {
+
+    //Номер строки в файле с единицы, заголовок CSV тоже считается
+    private final long line;
+
+    private final CreateItemDto item;
+
+    private final String error;
+
+    static ItemImportRow parsed(long line, CreateItemDto item) {
+        return new ItemImportRow(line, item, null);
+    }
+
+    static ItemImportRow failed(long line, String error) {
+        return new ItemImportRow(line, null, error);
+    }
+}
@@ -0,0 +1,155 @@
+package ru.practicum.shareit.item.importing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.ItemService;
+import ru.practicum.shareit.item.dto.CreateItemDto;
+import ru.practicum.shareit.item.dto.ItemImportErrorDto;
+import ru.practicum.shareit.item.dto.ItemImportProgressDto;
+import ru.practicum.shareit.item.exception.ImportLineTooLongException;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.Item;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+//Потоковый импорт вещей владельца: строки читаются по одной и копятся в чанк, чанк валидируется и сохраняется
+//отдельной транзакцией. Ответ - NDJSON: ошибки строк по мере обнаружения и прогресс после каждого чанка.
+//В памяти не больше одного чанка, поэтому размер файла не ограничен
+@Slf4j
+@Component
+public class ItemImporter {
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType(TEXT_CSV_VALUE);
+
+    private final ItemService itemService;
+    private final ItemMapper itemMapper;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxLineLength;
+
+    @Autowired
+    public ItemImporter(ItemService itemService, ItemMapper itemMapper, Validator validator, ObjectMapper objectMapper,
+                        @Value("${shareit.item.import.chunk-size:500}") int chunkSize,
+                        @Value("${shareit.item.import.max-line-length:4096}") int maxLineLength) {
+        this.itemService = itemService;
+        this.itemMapper = itemMapper;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.maxLineLength = maxLineLength;
+    }
+
+    //Кодировка берется из Content-Type, по умолчанию UTF-8
+    public ItemImportReader reader(MediaType contentType, InputStream body) {
+        Charset charset = contentType.getCharset() == null ? StandardCharsets.UTF_8 : contentType.getCharset();
+        ImportLineReader reader = new ImportLineReader(new BufferedReader(new InputStreamReader(body, charset)),
+                maxLineLength);
+        if (contentType.isCompatibleWith(TEXT_CSV)) {
+            return new CsvItemImportReader(reader);
+        }
+        return new NdjsonItemImportReader(reader, objectMapper.reader());
+    }
+
+    public void importItems(ItemImportReader reader, Long ownerId, OutputStream outputStream) throws IOException {
+        ObjectWriter writer = objectMapper.writer();
+        ItemImportProgressDto progress = new ItemImportProgressDto();
+        List<ItemImportRow> chunk = new ArrayList<>(chunkSize);
+        ItemImportRow row;
+        try {
+            while ((row = reader.next()) != null) {
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, ownerId, progress, writer, outputStream);
+                    chunk.clear();
+                }
+            }
+        } catch (ImportLineTooLongException e) {
+            //Пока ни один чанк не отправлен, ответ не начат: ничего не сохранено, клиент получит 400.
+            //Иначе статус уже ушел - сохраняются прочитанные строки, ошибка пишется в поток, импорт обрывается без finished
+            if (progress.getProcessed() == 0) {
+                throw e;
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, ownerId, progress, writer, outputStream);
+            }
+            writeLine(writer, outputStream, new ItemImportErrorDto(e.getLine(), e.getMessage()));
+            log.warn("ItemImporter importItems: импорт владельца {} прерван, {}: {}", ownerId, progress, e.getMessage());
+            return;
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, ownerId, progress, writer, outputStream);
+        }
+        progress.setFinished(true);
+        writeLine(writer, outputStream, progress);
+        log.info("ItemImporter importItems: импорт владельца {} завершен, {}", ownerId, progress);
+    }
+
+    private void importChunk(List<ItemImportRow> chunk, Long ownerId, ItemImportProgressDto progress,
+                             ObjectWriter writer, OutputStream outputStream) throws IOException {
+        List<Item> items = new ArrayList<>();
+        List<Long> lines = new ArrayList<>();
+        for (ItemImportRow row : chunk) {
+            String error = row.getError() == null ? validationError(row.getItem()) : row.getError();
+            if (error != null) {
+                writeLine(writer, outputStream, new ItemImportErrorDto(row.getLine(), error));
+                progress.setFailed(progress.getFailed() + 1);
+                continue;
+            }
+            items.add(itemMapper.createDtoToModel(row.getItem()));
+            lines.add(row.getLine());
+        }
+        if (!items.isEmpty()) {
+            List<String> errors = itemService.importChunk(items, ownerId);
+            for (int i = 0; i < errors.size(); i++) {
+                if (errors.get(i) == null) {
+                    progress.setCreated(progress.getCreated() + 1);
+                    continue;
+                }
+                writeLine(writer, outputStream, new ItemImportErrorDto(lines.get(i), errors.get(i)));
+                progress.setFailed(progress.getFailed() + 1);
+            }
+        }
+        progress.setProcessed(progress.getProcessed() + chunk.size());
+        writeLine(writer, outputStream, progress);
+        //Прогресс виден клиенту сразу, а не при заполнении буфера ответа
+        outputStream.flush();
+    }
+
+    private String validationError(CreateItemDto item) {
+        if (item == null) {
+            return "Пустая строка импорта";
+        }
+        Set<ConstraintViolation<CreateItemDto>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private static void writeLine(ObjectWriter writer, OutputStream outputStream, Object value) throws IOException {
+        outputStream.write(writer.writeValueAsBytes(value));
+        outputStream.write('\n');
+    }
+}
@@ -0,0 +1,36 @@
+package ru.practicum.shareit.item.importing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import ru.practicum.shareit.item.dto.CreateItemDto;
+
+import java.io.IOException;
+
+//Одна строка - один JSON-объект CreateItemDto, пустые строки пропускаются
+class NdjsonItemImportReader implements ItemImportReader {
+
+    private final ImportLineReader reader;
+    private final ObjectReader objectReader;
+
+    NdjsonItemImportReader(ImportLineReader reader, ObjectReader objectReader) {
+        this.reader = reader;
+        this.objectReader = objectReader.forType(CreateItemDto.class);
+    }
+
+    @Override
+    public ItemImportRow next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+        } while (text.isBlank());
+        long line = reader.getLine();
+        try {
+            return ItemImportRow.parsed(line, objectReader.readValue(text));
+        } catch (JsonProcessingException e) {
+            return ItemImportRow.failed(line, "Некорректный JSON: " + e.getOriginalMessage());
+        }
+    }
+}
@@ -4,16 +4,15 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import ru.practicum.shareit.booking.dto.GetItemsBookingDto;
 import ru.practicum.shareit.booking.model.Booking;
-import ru.practicum.shareit.comment.dto.CommentDto;
-import ru.practicum.shareit.comment.model.Comment;
+import ru.practicum.shareit.comment.dto.CommentsPreviewDto;
 import ru.practicum.shareit.item.dto.CreateItemDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.model.ItemRequest;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @Mapper(componentModel = "spring")
 public interface ItemMapper {
@@ -26,17 +25,32 @@ public interface ItemMapper {
             expression = "java(createItemRequest(itemDto.getRequestId()))")
     Item updateDtoToModel(ItemDto itemDto);
 
+    //Отзывы не берутся из ленивой коллекции item.getComments(): их превью передают заранее загруженными
     @Mapping(target = "lastBooking",
             expression = "java(bookingDtoFromEntity(item.getLastBooking()))")
     @Mapping(target = "nextBooking",
             expression = "java(bookingDtoFromEntity(item.getNextBooking()))")
-    @Mapping(target = "comments",
-            expression = "java(commentsFromEntity(item.getComments()))")
+    @Mapping(target = "comments", ignore = true)
+    @Mapping(target = "commentsCount", ignore = true)
     @Mapping(target = "requestId",
             expression = "java(getRequestId(item.getRequest()))")
-    ItemDto modelToDto(Item item);
+    ItemDto modelToDtoWithoutComments(Item item);
 
-    List<ItemDto> modelListToDtoList(List<Item> itemList);
+    default ItemDto modelToDto(Item item, Map<Long, CommentsPreviewDto> comments) {
+        ItemDto itemDto = modelToDtoWithoutComments(item);
+        CommentsPreviewDto preview = comments.getOrDefault(item.getId(), CommentsPreviewDto.EMPTY);
+        itemDto.setComments(preview.getLatest());
+        itemDto.setCommentsCount(preview.getTotal());
+        return itemDto;
+    }
+
+    default List<ItemDto> modelListToDtoList(List<Item> itemList, Map<Long, CommentsPreviewDto> comments) {
+        List<ItemDto> result = new ArrayList<>(itemList.size());
+        for (Item item : itemList) {
+            result.add(modelToDto(item, comments));
+        }
+        return result;
+    }
 
     default ItemRequest createItemRequest(Long requestId) {
         return ItemRequest.builder().id(requestId).build();
@@ -55,20 +69,4 @@ public interface ItemMapper {
         }
         return new GetItemsBookingDto(booking.getId(), booking.getBooker().getId());
     }
-
-    default List<CommentDto> commentsFromEntity(List<Comment> comments) {
-        if (comments == null) {
-            return Collections.emptyList();
-        }
-        List<CommentDto> result = new ArrayList<>();
-        for (Comment c : comments) {
-            result.add(CommentDto.builder()
-                    .id(c.getId())
-                    .authorName(c.getAuthor().getName())
-                    .text(c.getText())
-                    .created(c.getCreated())
-                    .build());
-        }
-        return result;
-    }
 }
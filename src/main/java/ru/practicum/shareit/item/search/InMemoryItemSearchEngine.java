@@ -0,0 +1,390 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.dto.ItemSearchDocumentDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.shared.pagination.OffsetBasedPageRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//Триграммный инвертированный индекс по названию и описанию. Кандидаты - пересечение списков триграмм запроса,
+//каждый из них затем проверяется через contains, так что семантика та же, что у LIKE '%text%'.
+//Запросы из одного-двух символов ищутся по спискам униграмм и биграмм, которые индекс тоже хранит.
+//Индекс строится из БД на старте (ItemIndexRebuildRunner), до этого поиск идет LIKE-запросом к БД
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "shareit.search.engine", havingValue = "memory", matchIfMissing = true)
+public class InMemoryItemSearchEngine implements ItemSearchEngine {
+
+    private static final int GRAM = 3;
+    private static final int NAME_MATCH_SCORE = 2;
+    private static final int DESCRIPTION_MATCH_SCORE = 1;
+    private static final Comparator<Hit> HIT_ORDER =
+            Comparator.comparingInt(Hit::getScore).reversed().thenComparing(Hit::getId);
+
+    private final ItemRepository itemRepository;
+    private final int chunkSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private NavigableMap<Long, Document> documents = new TreeMap<>();
+    private Map<String, Set<Long>> postings = new HashMap<>();
+    //Вещи, изменившиеся, пока перестройка читала БД: после подмены индекса они перечитываются заново
+    private final Set<Long> changedDuringRebuild = new HashSet<>();
+    private boolean rebuilding;
+    private volatile boolean built;
+
+    @Autowired
+    public InMemoryItemSearchEngine(ItemRepository itemRepository,
+                                    @Value("${shareit.search.index.batch-size:500}") int chunkSize) {
+        this.itemRepository = itemRepository;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public List<Item> search(String text, OffsetBasedPageRequest pageable) {
+        if (!built) {
+            return itemRepository.search(text, pageable);
+        }
+        long limit = pageable.getOffset() + pageable.getPageSize();
+        //Куча держит только limit лучших совпадений, ее вершина - худшее из них
+        PriorityQueue<Hit> top = new PriorityQueue<>(HIT_ORDER.reversed());
+        lock.readLock().lock();
+        try {
+            for (Long id : candidates(text)) {
+                Document document = documents.get(id);
+                int score = document.score(text);
+                if (!document.available || score == 0) {
+                    continue;
+                }
+                Hit hit = new Hit(id, score);
+                if (top.size() < limit) {
+                    top.add(hit);
+                } else if (HIT_ORDER.compare(hit, top.peek()) < 0) {
+                    top.poll();
+                    top.add(hit);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (pageable.getOffset() >= top.size()) {
+            return Collections.emptyList();
+        }
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(HIT_ORDER);
+        List<Long> pageIds = new ArrayList<>();
+        for (Hit hit : hits.subList((int) pageable.getOffset(), hits.size())) {
+            pageIds.add(hit.getId());
+        }
+        return loadInOrder(pageIds);
+    }
+
+    @Override
+    public void index(Item item) {
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                changedDuringRebuild.add(item.getId());
+            }
+            //Индекс еще не построен: вещь попадет в него при построении из БД
+            if (built) {
+                put(item.getId(), new Document(item.getName(), item.getDescription(), item.getAvailable()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long itemId) {
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                changedDuringRebuild.add(itemId);
+            }
+            removeDocument(itemId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //БД читается чанками без блокировки, поиск все это время идет по прежнему индексу. Новый индекс подменяет старый
+    //под блокировкой записи, а вещи, изменившиеся за время чтения, затем перечитываются из БД
+    @Override
+    public synchronized void rebuild() {
+        setRebuilding(true);
+        NavigableMap<Long, Document> newDocuments = new TreeMap<>();
+        Map<String, Set<Long>> newPostings = new HashMap<>();
+        try {
+            Long afterId = 0L;
+            List<ItemSearchDocumentDto> chunk;
+            while (!(chunk = nextChunk(afterId)).isEmpty()) {
+                for (ItemSearchDocumentDto dto : chunk) {
+                    put(newDocuments, newPostings, dto.getId(), new Document(dto));
+                }
+                afterId = chunk.get(chunk.size() - 1).getId();
+            }
+        } catch (RuntimeException e) {
+            setRebuilding(false);
+            throw e;
+        }
+        List<Long> changed;
+        lock.writeLock().lock();
+        try {
+            documents = newDocuments;
+            postings = newPostings;
+            built = true;
+            rebuilding = false;
+            changed = new ArrayList<>(changedDuringRebuild);
+            changedDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        refresh(changed);
+        log.info("InMemoryItemSearchEngine rebuild: проиндексировано вещей {}, перечитано после перестройки {}",
+                newDocuments.size(), changed.size());
+    }
+
+    //Индекс обходится чанками по id вместе с БД: блокировка записи берется на чанк и только для расходящихся вещей
+    @Override
+    public synchronized void reconcile() {
+        if (!built) {
+            rebuild();
+            return;
+        }
+        setRebuilding(true);
+        int fixed = 0;
+        try {
+            Long afterId = 0L;
+            List<ItemSearchDocumentDto> chunk;
+            while (!(chunk = nextChunk(afterId)).isEmpty()) {
+                Long lastId = chunk.get(chunk.size() - 1).getId();
+                fixed += reconcileRange(afterId, lastId, chunk);
+                afterId = lastId;
+            }
+            fixed += reconcileRange(afterId, Long.MAX_VALUE, Collections.emptyList());
+        } finally {
+            List<Long> changed;
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+                changed = new ArrayList<>(changedDuringRebuild);
+                changedDuringRebuild.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            refresh(changed);
+        }
+        log.info("InMemoryItemSearchEngine reconcile: исправлено вещей {}", fixed);
+    }
+
+    private List<ItemSearchDocumentDto> nextChunk(Long afterId) {
+        return itemRepository.findSearchDocumentsAfter(afterId, new OffsetBasedPageRequest(0, chunkSize));
+    }
+
+    //Вещи с id из (afterId, lastId]: расходящиеся с БД переиндексируются, отсутствующие в БД удаляются
+    private int reconcileRange(Long afterId, Long lastId, List<ItemSearchDocumentDto> chunk) {
+        lock.writeLock().lock();
+        try {
+            int fixed = 0;
+            Set<Long> present = new HashSet<>();
+            for (ItemSearchDocumentDto dto : chunk) {
+                present.add(dto.getId());
+                Document document = new Document(dto);
+                if (!document.equals(documents.get(dto.getId()))) {
+                    put(dto.getId(), document);
+                    fixed++;
+                }
+            }
+            List<Long> missing = new ArrayList<>();
+            for (Long id : documents.subMap(afterId, false, lastId, true).keySet()) {
+                if (!present.contains(id)) {
+                    missing.add(id);
+                }
+            }
+            for (Long id : missing) {
+                removeDocument(id);
+            }
+            return fixed + missing.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Set<Long> candidates(String text) {
+        //Короткий запрос сам является n-граммой: его список и есть все вещи, содержащие текст
+        if (text.length() <= GRAM) {
+            return postings.getOrDefault(text, Collections.emptySet());
+        }
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : trigrams(text)) {
+            Set<Long> ids = postings.get(gram);
+            if (ids == null) {
+                return Collections.emptySet();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        Set<Long> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    private void setRebuilding(boolean value) {
+        lock.writeLock().lock();
+        try {
+            rebuilding = value;
+            changedDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //Закоммиченное состояние вещей из БД, удаленные из БД вещи уходят из индекса
+    private void refresh(List<Long> itemIds) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        Set<Long> missing = new HashSet<>(itemIds);
+        for (Item item : itemRepository.findAllById(itemIds)) {
+            index(item);
+            missing.remove(item.getId());
+        }
+        for (Long itemId : missing) {
+            remove(itemId);
+        }
+    }
+
+    private void put(Long itemId, Document document) {
+        put(documents, postings, itemId, document);
+    }
+
+    private static void put(Map<Long, Document> documents, Map<String, Set<Long>> postings,
+                            Long itemId, Document document) {
+        removeDocument(documents, postings, itemId);
+        documents.put(itemId, document);
+        for (String gram : document.grams()) {
+            postings.computeIfAbsent(gram, g -> new HashSet<>()).add(itemId);
+        }
+    }
+
+    private void removeDocument(Long itemId) {
+        removeDocument(documents, postings, itemId);
+    }
+
+    private static void removeDocument(Map<Long, Document> documents, Map<String, Set<Long>> postings, Long itemId) {
+        Document previous = documents.remove(itemId);
+        if (previous == null) {
+            return;
+        }
+        for (String gram : previous.grams()) {
+            Set<Long> ids = postings.get(gram);
+            ids.remove(itemId);
+            if (ids.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    //БД остается источником истины: вещь, ставшая недоступной после индексации, в выдачу не попадет,
+    //а удаленная из БД сразу уходит и из индекса
+    private List<Item> loadInOrder(List<Long> ids) {
+        Map<Long, Item> byId = new HashMap<>();
+        for (Item item : itemRepository.findAllById(ids)) {
+            byId.put(item.getId(), item);
+        }
+        List<Item> result = new ArrayList<>();
+        for (Long id : ids) {
+            Item item = byId.get(id);
+            if (item == null) {
+                remove(id);
+            } else if (Boolean.TRUE.equals(item.getAvailable())) {
+                result.add(item);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> trigrams(String value) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            result.add(value.substring(i, i + GRAM));
+        }
+        return result;
+    }
+
+    //Все подстроки длиной от 1 до GRAM: запросы короче триграммы тоже находят кандидатов по индексу
+    private static Set<String> grams(String value) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i < value.length(); i++) {
+            for (int length = 1; length <= GRAM && i + length <= value.length(); length++) {
+                result.add(value.substring(i, i + length));
+            }
+        }
+        return result;
+    }
+
+    @EqualsAndHashCode
+    private static final class Document {
+
+        private final String name;
+        private final String description;
+        private final boolean available;
+
+        private Document(String name, String description, Boolean available) {
+            this.name = name == null ? "" : name.toLowerCase();
+            this.description = description == null ? "" : description.toLowerCase();
+            this.available = Boolean.TRUE.equals(available);
+        }
+
+        private Document(ItemSearchDocumentDto dto) {
+            this(dto.getName(), dto.getDescription(), dto.getAvailable());
+        }
+
+        private int score(String text) {
+            if (name.contains(text)) {
+                return NAME_MATCH_SCORE;
+            }
+            if (description.contains(text)) {
+                return DESCRIPTION_MATCH_SCORE;
+            }
+            return 0;
+        }
+
+        private Set<String> grams() {
+            Set<String> result = InMemoryItemSearchEngine.grams(name);
+            result.addAll(InMemoryItemSearchEngine.grams(description));
+            return result;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class Hit {
+
+        private final Long id;
+        private final int score;
+    }
+}
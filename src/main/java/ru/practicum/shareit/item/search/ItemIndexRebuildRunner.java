@@ -0,0 +1,42 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+//Холодный старт: индекс строится целиком до приема трафика (--shareit.search.rebuild-on-startup=false отключает),
+//--shareit.search.replay=1,2,3 повторно доставляет в индекс указанные вещи
+@Slf4j
+@Component
+public class ItemIndexRebuildRunner implements ApplicationRunner {
+
+    private final ItemIndexUpdater itemIndexUpdater;
+    private final boolean rebuildOnStartup;
+    private final List<Long> replayItemIds;
+
+    @Autowired
+    public ItemIndexRebuildRunner(ItemIndexUpdater itemIndexUpdater,
+                                  @Value("${shareit.search.rebuild-on-startup:true}") boolean rebuildOnStartup,
+                                  @Value("${shareit.search.replay:}") List<Long> replayItemIds) {
+        this.itemIndexUpdater = itemIndexUpdater;
+        this.rebuildOnStartup = rebuildOnStartup;
+        this.replayItemIds = replayItemIds;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (rebuildOnStartup) {
+            log.info("ItemIndexRebuildRunner: перестройка поискового индекса");
+            itemIndexUpdater.rebuild();
+        }
+        if (!replayItemIds.isEmpty()) {
+            log.info("ItemIndexRebuildRunner: повторная доставка в индекс вещей {}", replayItemIds);
+            itemIndexUpdater.replay(replayItemIds);
+        }
+    }
+}
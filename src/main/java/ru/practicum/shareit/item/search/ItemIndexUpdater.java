@@ -0,0 +1,89 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.event.ItemChangedEvent;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Доставляет изменения вещей в поисковый движок вне потока запроса.
+//В очередь попадают только id после коммита, повторные изменения одной вещи схлопываются,
+//а при сбросе вещи перечитываются из БД - в индекс всегда уходит закоммиченное состояние.
+//Очередь живет в памяти инстанса: чужие изменения и изменения, потерянные до сброса, догоняет плановая сверка
+@Slf4j
+@Component
+public class ItemIndexUpdater {
+
+    private final ItemRepository itemRepository;
+    private final ItemSearchEngine itemSearchEngine;
+    private final int batchSize;
+
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ItemIndexUpdater(ItemRepository itemRepository, ItemSearchEngine itemSearchEngine,
+                            @Value("${shareit.search.index.batch-size:500}") int batchSize) {
+        this.itemRepository = itemRepository;
+        this.itemSearchEngine = itemSearchEngine;
+        this.batchSize = batchSize;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onItemChanged(ItemChangedEvent event) {
+        pending.add(event.getItemId());
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.search.index.flush-delay-ms:200}")
+    public synchronized void flush() {
+        while (!pending.isEmpty()) {
+            List<Long> batch = nextBatch();
+            Set<Long> missing = new HashSet<>(batch);
+            for (Item item : itemRepository.findAllById(batch)) {
+                itemSearchEngine.index(item);
+                missing.remove(item.getId());
+            }
+            for (Long itemId : missing) {
+                itemSearchEngine.remove(itemId);
+            }
+            log.debug("ItemIndexUpdater flush: обработано изменений {}", batch.size());
+        }
+    }
+
+    //Плановая сверка индекса с БД ("-" - выключена). Очередь не сбрасывается: ее изменения новее прочитанного
+    @Scheduled(cron = "${shareit.search.index.reconcile-cron:-}")
+    public synchronized void reconcile() {
+        itemSearchEngine.reconcile();
+    }
+
+    //Все изменения, накопленные до перестройки, в нее уже входят
+    public synchronized void rebuild() {
+        pending.clear();
+        itemSearchEngine.rebuild();
+    }
+
+    public void replay(List<Long> itemIds) {
+        pending.addAll(itemIds);
+        flush();
+    }
+
+    private List<Long> nextBatch() {
+        List<Long> batch = new ArrayList<>();
+        Iterator<Long> iterator = pending.iterator();
+        while (iterator.hasNext() && batch.size() < batchSize) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+        return batch;
+    }
+}
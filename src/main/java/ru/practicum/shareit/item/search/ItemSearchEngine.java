@@ -0,0 +1,23 @@
+package ru.practicum.shareit.item.search;
+
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.shared.pagination.OffsetBasedPageRequest;
+
+import java.util.List;
+
+public interface ItemSearchEngine {
+
+    //text уже приведен к нижнему регистру, в выдачу попадают только доступные вещи
+    List<Item> search(String text, OffsetBasedPageRequest pageable);
+
+    //Вызываются ItemIndexUpdater'ом с уже закоммиченным состоянием вещи
+    void index(Item item);
+
+    void remove(Long itemId);
+
+    //Полная перестройка из БД для холодного старта
+    void rebuild();
+
+    //Сверка с БД: исправляются только расходящиеся вещи
+    void reconcile();
+}
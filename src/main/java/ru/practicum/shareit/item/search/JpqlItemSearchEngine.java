@@ -0,0 +1,44 @@
+package ru.practicum.shareit.item.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.shared.pagination.OffsetBasedPageRequest;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "shareit.search.engine", havingValue = "jpql")
+public class JpqlItemSearchEngine implements ItemSearchEngine {
+
+    private final ItemRepository itemRepository;
+
+    @Autowired
+    public JpqlItemSearchEngine(ItemRepository itemRepository) {
+        this.itemRepository = itemRepository;
+    }
+
+    @Override
+    public List<Item> search(String text, OffsetBasedPageRequest pageable) {
+        return itemRepository.search(text, pageable);
+    }
+
+    @Override
+    public void index(Item item) {
+        //Поиск идет прямо по таблице items, поддерживать нечего
+    }
+
+    @Override
+    public void remove(Long itemId) {
+    }
+
+    @Override
+    public void rebuild() {
+    }
+
+    @Override
+    public void reconcile() {
+    }
+}
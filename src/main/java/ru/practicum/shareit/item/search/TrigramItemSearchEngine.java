@@ -0,0 +1,45 @@
+package ru.practicum.shareit.item.search;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.shared.pagination.OffsetBasedPageRequest;
+
+import java.util.List;
+
+//Только для PostgreSQL (профиль postgres): требует расширения pg_trgm и индексов из миграций db/migration/postgresql
+@Component
+@ConditionalOnProperty(name = "shareit.search.engine", havingValue = "trigram")
+public class TrigramItemSearchEngine implements ItemSearchEngine {
+
+    private final ItemRepository itemRepository;
+
+    @Autowired
+    public TrigramItemSearchEngine(ItemRepository itemRepository) {
+        this.itemRepository = itemRepository;
+    }
+
+    @Override
+    public List<Item> search(String text, OffsetBasedPageRequest pageable) {
+        return itemRepository.searchByTrigramIndex(text, pageable);
+    }
+
+    @Override
+    public void index(Item item) {
+        //Индексы pg_trgm обновляет сама БД
+    }
+
+    @Override
+    public void remove(Long itemId) {
+    }
+
+    @Override
+    public void rebuild() {
+    }
+
+    @Override
+    public void reconcile() {
+    }
+}
@@ -2,16 +2,19 @@ package ru.practicum.shareit.request;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.request.dto.PostItemRequestDto;
 import ru.practicum.shareit.request.dto.ResponseItemRequestDto;
 import ru.practicum.shareit.request.mapper.ItemRequestMapper;
 import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.shared.pagination.KeysetCursor;
 
 import javax.validation.Valid;
 import javax.validation.constraints.Min;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping(path = "/requests")
@@ -19,6 +22,9 @@ import java.util.List;
 @Validated
 public class ItemRequestController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
     private final ItemRequestMapper itemRequestMapper;
     private final ItemRequestService itemRequestService;
 
@@ -40,13 +46,36 @@ public class ItemRequestController {
         return response;
     }
 
+    //Свои запросы от новых к старым. Без from, size и cursor - все запросы, как до постраничной выдачи.
+    //Иначе страница, курсор следующей - в заголовке X-Next-Cursor, пока страница полная
     @GetMapping
-    public List<ResponseItemRequestDto> getByUserId(@RequestHeader("X-Sharer-User-Id") final Long userId) {
+    public ResponseEntity<List<ResponseItemRequestDto>> getByUserId(
+            @RequestParam(required = false) @Min(0) final Long from,
+            @RequestParam(required = false) @Min(1) final Integer size,
+            @RequestParam(required = false) final String cursor,
+            @RequestHeader("X-Sharer-User-Id") final Long userId) {
         log.info("ItemRequestController getByUserId: запрос на получение всех запросов пользователя с id {}", userId);
-        List<ItemRequest> itemRequests = itemRequestService.getByUserId(userId);
-        List<ResponseItemRequestDto> response = itemRequestMapper.modelListToDtoList(itemRequests);
+        if (from == null && size == null && cursor == null) {
+            List<ItemRequest> itemRequests = itemRequestService.getByUserId(userId);
+            List<ResponseItemRequestDto> response = itemRequestMapper.modelListToDtoList(itemRequests,
+                    itemRequestService.getAnswers(ids(itemRequests)));
+            log.info("ItemRequestController getByUserId: выполнен запрос на получение всех запросов пользователя с id {}", userId);
+            return ResponseEntity.ok(response);
+        }
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : size;
+        List<ItemRequest> itemRequests = cursor == null
+                ? itemRequestService.getByUserId(userId, from == null ? 0 : from, pageSize)
+                : itemRequestService.getByUserId(userId, KeysetCursor.decode(cursor), pageSize);
+        List<ResponseItemRequestDto> response = itemRequestMapper.modelListToDtoList(itemRequests,
+                itemRequestService.getAnswers(ids(itemRequests)));
         log.info("ItemRequestController getByUserId: выполнен запрос на получение всех запросов пользователя с id {}", userId);
-        return response;
+        if (response.size() < pageSize) {
+            return ResponseEntity.ok(response);
+        }
+        ResponseItemRequestDto last = response.get(response.size() - 1);
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, new KeysetCursor(last.getCreated(), last.getId()).encode())
+                .body(response);
     }
 
     @GetMapping("/{requestId}")
@@ -56,7 +85,8 @@ public class ItemRequestController {
     ) {
         log.info("ItemRequestController getById: запрос на получение запроса с id {}", requestId);
         ItemRequest itemRequest = itemRequestService.getById(requestId, userId);
-        ResponseItemRequestDto response = itemRequestMapper.modelToDto(itemRequest);
+        ResponseItemRequestDto response = itemRequestMapper.modelToDto(itemRequest,
+                itemRequestService.getAnswers(List.of(itemRequest.getId())));
         log.info("ItemRequestController getById: выполнен запрос на получение запроса с id {}", requestId);
         return response;
     }
@@ -70,8 +100,13 @@ public class ItemRequestController {
     ) {
         log.info("ItemRequestController getPage: запрос на получение страницы запросов from {}, size {}", from, size);
         List<ItemRequest> itemRequests = itemRequestService.getPage(from, size, userId);
-        List<ResponseItemRequestDto> response = itemRequestMapper.modelListToDtoList(itemRequests);
+        List<ResponseItemRequestDto> response = itemRequestMapper.modelListToDtoList(itemRequests,
+                itemRequestService.getAnswers(ids(itemRequests)));
         log.info("ItemRequestController getPage: выполнен запрос на получение страницы запросов from {}, size {}", from, size);
         return response;
     }
+
+    private static List<Long> ids(List<ItemRequest> itemRequests) {
+        return itemRequests.stream().map(ItemRequest::getId).collect(Collectors.toList());
+    }
 }
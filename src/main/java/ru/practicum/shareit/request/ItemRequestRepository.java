@@ -1,13 +1,40 @@
 package ru.practicum.shareit.request;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.shared.pagination.OffsetBasedPageRequest;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 @Repository
 public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long> {
+
+    String SELECT_OF_REQUESTOR = "select r from ItemRequest r where r.requestor.id = :requestorId";
+    //Порядок совпадает с индексом request (requestor_id, created DESC, id DESC): страница читается с начала диапазона
+    String ORDER = " order by r.created desc, r.id desc";
+
     List<ItemRequest> findAllByIdNotIn(List<Long> ids, OffsetBasedPageRequest pageable);
+
+    //Какие из переданных id существуют, без загрузки самих запросов и их вещей
+    @Query("select r.id from ItemRequest r where r.id in :ids")
+    Set<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query(SELECT_OF_REQUESTOR + ORDER)
+    List<ItemRequest> findAllOfRequestor(@Param("requestorId") Long requestorId);
+
+    @Query(SELECT_OF_REQUESTOR + ORDER)
+    List<ItemRequest> findAllOfRequestor(@Param("requestorId") Long requestorId, OffsetBasedPageRequest pageable);
+
+    //Продолжение выдачи после курсора (created, id) вместо OFFSET
+    @Query(SELECT_OF_REQUESTOR + " and (r.created < :cursorCreated or (r.created = :cursorCreated and r.id < :cursorId))" + ORDER)
+    List<ItemRequest> findAllOfRequestorAfterCursor(@Param("requestorId") Long requestorId,
+                                                    @Param("cursorCreated") LocalDateTime cursorCreated,
+                                                    @Param("cursorId") Long cursorId,
+                                                    OffsetBasedPageRequest pageable);
 }
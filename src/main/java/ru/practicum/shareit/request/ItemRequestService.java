@@ -1,15 +1,25 @@
 package ru.practicum.shareit.request;
 
+import ru.practicum.shareit.item.dto.ItemRequestResponseDto;
 import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.shared.pagination.KeysetCursor;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface ItemRequestService {
     ItemRequest create(ItemRequest itemRequest, Long userId);
 
     List<ItemRequest> getByUserId(Long userId);
 
+    List<ItemRequest> getByUserId(Long userId, long from, int size);
+
+    List<ItemRequest> getByUserId(Long userId, KeysetCursor cursor, int size);
+
     ItemRequest getById(Long requestId, Long userId);
 
     List<ItemRequest> getPage(long from, int size, Long userId);
+
+    Map<Long, List<ItemRequestResponseDto>> getAnswers(Collection<Long> requestIds);
 }
@@ -4,54 +4,75 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.dto.ItemRequestResponseDto;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.shared.exception.NotFoundException;
+import ru.practicum.shareit.shared.pagination.KeysetCursor;
 import ru.practicum.shareit.shared.pagination.OffsetBasedPageRequest;
+import ru.practicum.shareit.user.KnownUsers;
 import ru.practicum.shareit.user.UserRepository;
-import ru.practicum.shareit.user.model.User;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class ItemRequestServiceImpl implements ItemRequestService {
 
     private final UserRepository userRepository;
     private final ItemRequestRepository itemRequestRepository;
+    private final ItemRepository itemRepository;
+    private final KnownUsers knownUsers;
 
     @Autowired
-    public ItemRequestServiceImpl(UserRepository userRepository, ItemRequestRepository itemRequestRepository) {
+    public ItemRequestServiceImpl(UserRepository userRepository, ItemRequestRepository itemRequestRepository,
+                                  ItemRepository itemRepository, KnownUsers knownUsers) {
         this.userRepository = userRepository;
         this.itemRequestRepository = itemRequestRepository;
+        this.itemRepository = itemRepository;
+        this.knownUsers = knownUsers;
     }
 
     @Override
     @Transactional
     public ItemRequest create(ItemRequest itemRequest, Long userId) {
-        User requestor = userRepository.findById(userId).orElseThrow(() -> {
+        if (!knownUsers.exists(userId)) {
             throw new NotFoundException("При запросе на создание itemRequest не найден пользователь");
-        });
+        }
         //Сетаю, потому что надо проверить существование пользователя. Иначе бизнес-логика была бы в маппере
-        itemRequest.setRequestor(requestor);
+        //Для внешнего ключа достаточно ссылки, строка пользователя не читается
+        itemRequest.setRequestor(userRepository.getReferenceById(userId));
         return itemRequestRepository.save(itemRequest);
     }
 
+    //Свои запросы от новых к старым постранично, сортирует и режет БД
     @Override
     public List<ItemRequest> getByUserId(Long userId) {
-        User user = userRepository.findById(userId).orElseThrow(() -> {
-            throw new NotFoundException("При запросе на получение всех itemRequest не найден пользователь");
-        });
-        List<ItemRequest> result = user.getItemRequests();
-        //либо 2 раза идти в БД, либо сортить тут силами java
-        result.sort(Comparator.comparing(ItemRequest::getCreated).reversed());
-        return result;
+        checkRequestorExists(userId);
+        return itemRequestRepository.findAllOfRequestor(userId);
+    }
+
+    @Override
+    public List<ItemRequest> getByUserId(Long userId, long from, int size) {
+        checkRequestorExists(userId);
+        return itemRequestRepository.findAllOfRequestor(userId, new OffsetBasedPageRequest(from, size));
+    }
+
+    @Override
+    public List<ItemRequest> getByUserId(Long userId, KeysetCursor cursor, int size) {
+        checkRequestorExists(userId);
+        return itemRequestRepository.findAllOfRequestorAfterCursor(userId, cursor.getStart(), cursor.getId(),
+                new OffsetBasedPageRequest(0, size));
     }
 
     @Override
     public ItemRequest getById(Long requestId, Long userId) {
-        userRepository.findById(userId).orElseThrow(() -> {
+        if (!knownUsers.exists(userId)) {
             throw new NotFoundException("При запросе на получение itemRequest передан несуществующий пользователь");
-        });
+        }
         return itemRequestRepository.findById(requestId).orElseThrow(() -> {
             throw new NotFoundException("При запросе на получение itemRequest передан несуществующий id запроса");
         });
@@ -59,10 +80,31 @@ public class ItemRequestServiceImpl implements ItemRequestService {
 
     @Override
     public List<ItemRequest> getPage(long from, int size, Long userId) {
-        userRepository.findById(userId).orElseThrow(() -> {
+        if (!knownUsers.exists(userId)) {
             throw new NotFoundException("При запросе на получение страницы передан несуществующий id пользователя");
-        });
+        }
         OffsetBasedPageRequest pageable = new OffsetBasedPageRequest(from, size, Sort.by("created").descending());
         return itemRequestRepository.findAllByIdNotIn(List.of(userId), pageable);
     }
+
+    //Вещи-ответы для всех запросов страницы одним запросом, сгруппированные по id запроса.
+    //У запроса без ответов ключа нет
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Long, List<ItemRequestResponseDto>> getAnswers(Collection<Long> requestIds) {
+        Map<Long, List<ItemRequestResponseDto>> answers = new HashMap<>();
+        if (requestIds.isEmpty()) {
+            return answers;
+        }
+        for (ItemRequestResponseDto dto : itemRepository.findAnswersToRequests(requestIds)) {
+            answers.computeIfAbsent(dto.getRequestId(), id -> new ArrayList<>()).add(dto);
+        }
+        return answers;
+    }
+
+    private void checkRequestorExists(Long userId) {
+        if (!knownUsers.exists(userId)) {
+            throw new NotFoundException("При запросе на получение всех itemRequest не найден пользователь");
+        }
+    }
 }
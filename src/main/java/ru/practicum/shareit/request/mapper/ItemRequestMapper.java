@@ -1,7 +1,9 @@
 package ru.practicum.shareit.request.mapper;
 
+import org.mapstruct.InheritConfiguration;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.Named;
 import ru.practicum.shareit.item.dto.ItemRequestResponseDto;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.dto.PostItemRequestDto;
@@ -10,7 +12,9 @@ import ru.practicum.shareit.request.model.ItemRequest;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @Mapper(componentModel = "spring", imports = {LocalDateTime.class})
 public interface ItemRequestMapper {
@@ -22,7 +26,26 @@ public interface ItemRequestMapper {
             expression = "java(getItemDto(itemRequest.getItems()))")
     ResponseItemRequestDto modelToDto(ItemRequest itemRequest);
 
-    List<ResponseItemRequestDto> modelListToDtoList(List<ItemRequest> itemRequestList);
+    //Ответы не берутся из ленивой коллекции itemRequest.getItems(): их передают заранее загруженными
+    @Named("withoutItems")
+    @InheritConfiguration(name = "modelToDto")
+    @Mapping(target = "items", ignore = true)
+    ResponseItemRequestDto modelToDtoWithoutItems(ItemRequest itemRequest);
+
+    default ResponseItemRequestDto modelToDto(ItemRequest itemRequest, Map<Long, List<ItemRequestResponseDto>> answers) {
+        ResponseItemRequestDto itemRequestDto = modelToDtoWithoutItems(itemRequest);
+        itemRequestDto.setItems(answers.getOrDefault(itemRequest.getId(), Collections.emptyList()));
+        return itemRequestDto;
+    }
+
+    default List<ResponseItemRequestDto> modelListToDtoList(List<ItemRequest> itemRequestList,
+                                                            Map<Long, List<ItemRequestResponseDto>> answers) {
+        List<ResponseItemRequestDto> result = new ArrayList<>(itemRequestList.size());
+        for (ItemRequest itemRequest : itemRequestList) {
+            result.add(modelToDto(itemRequest, answers));
+        }
+        return result;
+    }
 
     default LocalDateTime setTime() {
         return LocalDateTime.now();
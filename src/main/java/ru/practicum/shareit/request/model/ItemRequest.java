@@ -21,7 +21,8 @@ import java.util.Objects;
 public class ItemRequest {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "request_id_seq")
+    @SequenceGenerator(name = "request_id_seq", sequenceName = "request_id_seq", allocationSize = 50)
     private Long id;
 
     private String description;
@@ -31,7 +32,9 @@ public class ItemRequest {
     @JsonIgnore
     private User requestor;
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "request")
+    //Ответы на страницу запросов читает ItemRequestService.getAnswers одним запросом,
+    //коллекция с EAGER подгружала их отдельным select на каждый запрос
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "request")
     @ToString.Exclude
     @JsonIgnore
     private List<Item> items;
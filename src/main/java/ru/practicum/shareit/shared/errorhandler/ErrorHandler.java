@@ -2,6 +2,8 @@ package ru.practicum.shareit.shared.errorhandler;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -10,11 +12,13 @@ import org.springframework.web.method.annotation.MethodArgumentTypeMismatchExcep
 import ru.practicum.shareit.booking.exception.BookingAlreadyApprovedException;
 import ru.practicum.shareit.booking.exception.ItemUnavailableException;
 import ru.practicum.shareit.comment.exception.CommentDeniedException;
+import ru.practicum.shareit.item.exception.ImportLineTooLongException;
 import ru.practicum.shareit.shared.errorhandler.response.BadRequestResponse;
 import ru.practicum.shareit.shared.errorhandler.response.ConflictResponse;
 import ru.practicum.shareit.shared.errorhandler.response.NotFoundResponse;
 import ru.practicum.shareit.shared.exception.AccessDeniedException;
 import ru.practicum.shareit.shared.exception.ConflictException;
+import ru.practicum.shareit.shared.exception.InvalidCursorException;
 import ru.practicum.shareit.shared.exception.NotFoundException;
 
 import javax.validation.ConstraintViolationException;
@@ -73,6 +77,22 @@ public class ErrorHandler {
         return new BadRequestResponse(e.getMessage());
     }
 
+    //Приходит из потокового импорта, где ответу уже выставлен Content-Type NDJSON: тип ошибки задается явно
+    @ExceptionHandler(ImportLineTooLongException.class)
+    public ResponseEntity<BadRequestResponse> handleImportLineTooLongException(final ImportLineTooLongException e) {
+        log.error("400 {}", e.getMessage());
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new BadRequestResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public BadRequestResponse handleInvalidCursorException(final InvalidCursorException e) {
+        log.error("400 {}", e.getMessage());
+        return new BadRequestResponse(e.getMessage());
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public BadRequestResponse handleMethodArgumentNotValidException(final MethodArgumentNotValidException e) {
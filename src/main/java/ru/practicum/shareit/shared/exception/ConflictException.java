@@ -2,6 +2,10 @@ package ru.practicum.shareit.shared.exception;
 
 public class ConflictException extends RuntimeException {
 
+    public ConflictException(String message) {
+        super(message);
+    }
+
     public ConflictException(String message, Throwable cause) {
         super(message, cause);
     }
@@ -0,0 +1,8 @@
+package ru.practicum.shareit.shared.exception;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
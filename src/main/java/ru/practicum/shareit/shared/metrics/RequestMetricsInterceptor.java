@@ -0,0 +1,58 @@
+package ru.practicum.shareit.shared.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+//Число SQL-запросов и загруженных сущностей на HTTP-запрос с теми же тегами method и uri, что у http.server.requests
+@Component
+public class RequestMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    static final String STATEMENTS = "shareit.http.sql.statements";
+    static final String ENTITY_LOADS = "shareit.http.entity.loads";
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public RequestMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestStatistics.start();
+        return true;
+    }
+
+    //Асинхронный ответ (выгрузка броней) дописывается в другом потоке, а afterCompletion придет после повторной
+    //диспетчеризации запроса. Счетчики первого прохода убираются, чтобы не остаться в потоке контейнера
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestStatistics.finish();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestStatistics statistics = RequestStatistics.finish();
+        if (statistics == null) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        summary(STATEMENTS, request.getMethod(), uri).record(statistics.getStatements());
+        summary(ENTITY_LOADS, request.getMethod(), uri).record(statistics.getEntityLoads());
+    }
+
+    private DistributionSummary summary(String name, String method, String uri) {
+        return DistributionSummary.builder(name)
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,46 @@
+package ru.practicum.shareit.shared.metrics;
+
+//Счетчики SQL-запросов и загрузок сущностей текущего HTTP-запроса. Глобальная статистика Hibernate
+//общая на все потоки, поэтому считаем в ThreadLocal: вне запроса (планировщик, раннеры) счетчики не ведутся
+public final class RequestStatistics {
+
+    private static final ThreadLocal<RequestStatistics> CURRENT = new ThreadLocal<>();
+
+    private long statements;
+    private long entityLoads;
+
+    private RequestStatistics() {
+    }
+
+    public static void start() {
+        CURRENT.set(new RequestStatistics());
+    }
+
+    public static RequestStatistics finish() {
+        RequestStatistics statistics = CURRENT.get();
+        CURRENT.remove();
+        return statistics;
+    }
+
+    static void statementPrepared() {
+        RequestStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.statements++;
+        }
+    }
+
+    static void entityLoaded() {
+        RequestStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.entityLoads++;
+        }
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getEntityLoads() {
+        return entityLoads;
+    }
+}
@@ -0,0 +1,12 @@
+package ru.practicum.shareit.shared.metrics;
+
+import org.hibernate.BaseSessionEventListener;
+
+//Создается Hibernate на каждую сессию через hibernate.session.events.auto
+public class StatementCountingListener extends BaseSessionEventListener {
+
+    @Override
+    public void jdbcPrepareStatementEnd() {
+        RequestStatistics.statementPrepared();
+    }
+}
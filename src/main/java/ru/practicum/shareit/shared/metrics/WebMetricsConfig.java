@@ -0,0 +1,22 @@
+package ru.practicum.shareit.shared.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebMetricsConfig implements WebMvcConfigurer {
+
+    private final RequestMetricsInterceptor requestMetricsInterceptor;
+
+    @Autowired
+    public WebMetricsConfig(RequestMetricsInterceptor requestMetricsInterceptor) {
+        this.requestMetricsInterceptor = requestMetricsInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(requestMetricsInterceptor).excludePathPatterns("/actuator/**");
+    }
+}
@@ -0,0 +1,44 @@
+package ru.practicum.shareit.shared.pagination;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import ru.practicum.shareit.shared.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+//Позиция в выдаче по (start DESC, id DESC): у броней start, у отзывов created.
+//Следующая страница начинается сразу после этой пары без OFFSET, клиенту курсор отдается base64url-строкой
+@Getter
+@EqualsAndHashCode
+public class KeysetCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime start;
+    private final Long id;
+
+    public KeysetCursor(LocalDateTime start, Long id) {
+        this.start = start;
+        this.id = id;
+    }
+
+    public String encode() {
+        String raw = start + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = raw.lastIndexOf(SEPARATOR);
+            LocalDateTime start = LocalDateTime.parse(raw.substring(0, separatorIndex));
+            Long id = Long.parseLong(raw.substring(separatorIndex + 1));
+            return new KeysetCursor(start, id);
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException("Передан некорректный cursor " + cursor, e);
+        }
+    }
+}
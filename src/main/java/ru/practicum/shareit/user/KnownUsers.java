@@ -0,0 +1,43 @@
+package ru.practicum.shareit.user;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+//Кэш id существующих пользователей для проверки X-Sharer-User-Id без запроса к БД.
+//Хранятся только положительные ответы: несуществующий id всегда проверяется в БД, поэтому создание
+//пользователя на другом инстансе видно сразу, а удаление - не позже чем через TTL
+@Component
+public class KnownUsers {
+
+    private final UserRepository userRepository;
+    private final Cache<Long, Boolean> existing;
+
+    public KnownUsers(UserRepository userRepository,
+                      @Value("${shareit.user.known-users.max-size:100000}") long maxSize,
+                      @Value("${shareit.user.known-users.ttl:10m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.existing = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    public boolean exists(Long userId) {
+        //Загрузка атомарна по ключу: forget, пришедший во время запроса к БД, дождется его и удалит результат
+        return existing.get(userId, id -> userRepository.existsById(id) ? Boolean.TRUE : null) != null;
+    }
+
+    //Вызывается после коммита создания пользователя
+    public void remember(Long userId) {
+        existing.put(userId, Boolean.TRUE);
+    }
+
+    //Вызывается после коммита удаления пользователя
+    public void forget(Long userId) {
+        existing.invalidate(userId);
+    }
+}
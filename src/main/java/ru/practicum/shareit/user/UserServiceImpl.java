@@ -2,12 +2,20 @@ package ru.practicum.shareit.user;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.summary.ItemBookingSummaryService;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.event.ItemChangedEvent;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.Status;
 import ru.practicum.shareit.shared.exception.ConflictException;
 import ru.practicum.shareit.shared.exception.NotFoundException;
 import ru.practicum.shareit.user.model.User;
 
+import javax.persistence.EntityManagerFactory;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,10 +24,25 @@ import java.util.Optional;
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private final KnownUsers knownUsers;
+    private final BookingRepository bookingRepository;
+    private final ItemBookingSummaryService itemBookingSummaryService;
+    private final ItemRepository itemRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public UserServiceImpl(UserRepository repository) {
+    public UserServiceImpl(UserRepository repository, EntityManagerFactory entityManagerFactory,
+                           KnownUsers knownUsers, BookingRepository bookingRepository,
+                           ItemBookingSummaryService itemBookingSummaryService,
+                           ItemRepository itemRepository, ApplicationEventPublisher eventPublisher) {
         this.userRepository = repository;
+        this.entityManagerFactory = entityManagerFactory;
+        this.knownUsers = knownUsers;
+        this.bookingRepository = bookingRepository;
+        this.itemBookingSummaryService = itemBookingSummaryService;
+        this.itemRepository = itemRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -48,6 +71,7 @@ public class UserServiceImpl implements UserService {
         log.info("UserService create: запрос на создание пользователя {}", userToCreate);
         try {
             User createdUser = userRepository.save(userToCreate);
+            knownUsers.remember(createdUser.getId());
             log.info("UserService create: выполнен запрос на создание пользователя {}", createdUser);
             return createdUser;
         } catch (DataIntegrityViolationException e) {
@@ -92,6 +116,17 @@ public class UserServiceImpl implements UserService {
             String message = String.format("В запросе на удаление пользователя передан несуществующий id %d", userId);
             throw new NotFoundException(message);
         }
+        //Брони пользователя удаляются каскадом, сводки чужих вещей, которые он брал, после удаления пересчитываются
+        List<Long> bookedItemIds = bookingRepository.findItemIdsOfBooker(userId, Status.APPROVED);
+        List<Long> ownedItemIds = itemRepository.findIdsByOwnerId(userId);
         userRepository.deleteById(userId);
+        knownUsers.forget(userId);
+        //Вещи пользователя удаляются в БД каскадом мимо Hibernate, поэтому их регион кэша сбрасывается целиком
+        entityManagerFactory.getCache().evict(Item.class);
+        itemBookingSummaryService.refresh(bookedItemIds);
+        //Удаленные каскадом вещи не найдутся в БД, и ItemIndexUpdater снимет их с поиска
+        for (Long itemId : ownedItemIds) {
+            eventPublisher.publishEvent(new ItemChangedEvent(itemId));
+        }
     }
 }
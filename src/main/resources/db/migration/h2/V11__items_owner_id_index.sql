@@ -0,0 +1,2 @@
+-- Вещи владельца и его брони: фильтр по items.owner_id, страница вещей по id
+CREATE INDEX IF NOT EXISTS items_owner_id_idx ON items (owner_id, id);
@@ -0,0 +1,4 @@
+-- Последняя и ближайшая брони страницы вещей: фильтр по item_id (и status), порядок start_date DESC, id DESC
+CREATE INDEX IF NOT EXISTS bookings_item_id_start_date_idx ON bookings (item_id, start_date DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS bookings_item_id_status_start_date_idx ON bookings (item_id, status, start_date DESC, id DESC);
@@ -0,0 +1,8 @@
+-- Статус брони хранится строкой с CHECK, как в postgresql: сущность маппит его через EnumType.STRING,
+-- и ddl-auto=validate не принимает тип ENUM
+ALTER TABLE bookings ALTER COLUMN status SET DATA TYPE VARCHAR(16);
+
+ALTER TABLE bookings ADD CONSTRAINT bookings_status_check
+    CHECK (status IN ('WAITING', 'APPROVED', 'REJECTED', 'CANCELED'));
+
+DROP TYPE status;
@@ -0,0 +1,34 @@
+-- Остальные сущности переходят на последовательности так же, как брони в V4: Hibernate выдает id блоками по 50,
+-- вставки и обновления одной транзакции уходят JDBC-батчами. Значение последовательности - верхняя граница блока
+
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE users_id_seq START WITH 50 INCREMENT BY 50;
+
+ALTER SEQUENCE users_id_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM users);
+
+ALTER TABLE users ALTER COLUMN id SET DEFAULT NEXT VALUE FOR users_id_seq;
+
+ALTER TABLE request ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE request_id_seq START WITH 50 INCREMENT BY 50;
+
+ALTER SEQUENCE request_id_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM request);
+
+ALTER TABLE request ALTER COLUMN id SET DEFAULT NEXT VALUE FOR request_id_seq;
+
+ALTER TABLE items ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE items_id_seq START WITH 50 INCREMENT BY 50;
+
+ALTER SEQUENCE items_id_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM items);
+
+ALTER TABLE items ALTER COLUMN id SET DEFAULT NEXT VALUE FOR items_id_seq;
+
+ALTER TABLE comments ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE comments_id_seq START WITH 50 INCREMENT BY 50;
+
+ALTER SEQUENCE comments_id_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM comments);
+
+ALTER TABLE comments ALTER COLUMN id SET DEFAULT NEXT VALUE FOR comments_id_seq;
@@ -0,0 +1,3 @@
+-- Свои запросы пользователя GET /requests идут страницами по (created DESC, id DESC)
+-- внутри requestor_id и читают индекс с начала диапазона, без сортировки всей истории
+CREATE INDEX IF NOT EXISTS request_requestor_id_created_idx ON request (requestor_id, created DESC, id DESC);
@@ -0,0 +1,15 @@
+-- Ожидающие и подтвержденные брони одной вещи не пересекаются по времени, это проверяет сама БД.
+-- Если в таблице уже есть пересечения, миграция упадет: их нужно разобрать вручную до обновления
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+DO
+$$
+    BEGIN
+        IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'bookings_item_id_period_excl') THEN
+            ALTER TABLE bookings
+                ADD CONSTRAINT bookings_item_id_period_excl
+                    EXCLUDE USING gist (item_id WITH =, tsrange(start_date, end_date) WITH &&)
+                    WHERE (status IN ('WAITING', 'APPROVED'));
+        END IF;
+    END
+$$;
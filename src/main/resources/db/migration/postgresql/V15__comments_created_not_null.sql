@@ -0,0 +1,5 @@
+-- Отзывы выдаются по (created, id) и курсор кодирует created: время у отзыва обязательно.
+-- Отзывам, сохраненным без времени, проставляется самое раннее - в выдаче они окажутся последними
+UPDATE comments SET created = TIMESTAMP '1970-01-01 00:00:00' WHERE created IS NULL;
+
+ALTER TABLE comments ALTER COLUMN created SET NOT NULL;
@@ -0,0 +1,46 @@
+CREATE TABLE IF NOT EXISTS users
+(
+    id    BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name  VARCHAR(64) NOT NULL,
+    email VARCHAR(64) NOT NULL
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS email_unique ON users (email);
+
+CREATE TABLE IF NOT EXISTS request
+(
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    description  VARCHAR(255),
+    created      TIMESTAMP,
+    requestor_id BIGINT REFERENCES users (id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS items
+(
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name         VARCHAR(64)  NOT NULL,
+    description  VARCHAR(255) NOT NULL,
+    is_available BOOLEAN      NOT NULL,
+    owner_id     BIGINT REFERENCES users (id) ON DELETE CASCADE,
+    request_id   BIGINT REFERENCES request (id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS bookings
+(
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    start_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    end_date   TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    item_id    BIGINT REFERENCES items (id) ON DELETE CASCADE,
+    booker_id  BIGINT REFERENCES users (id) ON DELETE CASCADE,
+    status     VARCHAR(16)                 NOT NULL
+        CHECK (status IN ('WAITING', 'APPROVED', 'REJECTED', 'CANCELED'))
+);
+
+CREATE TABLE IF NOT EXISTS comments
+(
+    id        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    text      VARCHAR(1024) NOT NULL,
+    item_id   BIGINT REFERENCES items (id) ON DELETE CASCADE,
+    author_id BIGINT REFERENCES users (id) ON DELETE CASCADE,
+    created   TIMESTAMP WITHOUT TIME ZONE
+);
@@ -0,0 +1,4 @@
+-- Списки броней арендатора: фильтр по booker_id (и status), сортировка start_date DESC, id DESC без отдельной сортировки
+CREATE INDEX bookings_booker_id_start_date_idx ON bookings (booker_id, start_date DESC, id DESC);
+
+CREATE INDEX bookings_booker_id_status_start_date_idx ON bookings (booker_id, status, start_date DESC, id DESC);
@@ -0,0 +1,11 @@
+-- Id броней выдает Hibernate из последовательности блоками по 50 (pooled): вставки уходят JDBC-батчами.
+-- IDENTITY заменяется умолчанием из той же последовательности, поэтому вставки в обход приложения
+-- не пересекаются с блоками Hibernate.
+-- Значение последовательности - верхняя граница выданного блока, поэтому она стартует с MAX(id) + 50
+ALTER TABLE bookings ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE bookings_id_seq START WITH 50 INCREMENT BY 50 OWNED BY bookings.id;
+
+SELECT setval('bookings_id_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM bookings), false);
+
+ALTER TABLE bookings ALTER COLUMN id SET DEFAULT nextval('bookings_id_seq');
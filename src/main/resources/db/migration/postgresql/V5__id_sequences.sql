@@ -0,0 +1,34 @@
+-- Остальные сущности переходят на последовательности так же, как брони в V4: Hibernate выдает id блоками по 50,
+-- вставки и обновления одной транзакции уходят JDBC-батчами. Значение последовательности - верхняя граница блока
+
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE users_id_seq START WITH 50 INCREMENT BY 50 OWNED BY users.id;
+
+SELECT setval('users_id_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM users), false);
+
+ALTER TABLE users ALTER COLUMN id SET DEFAULT nextval('users_id_seq');
+
+ALTER TABLE request ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE request_id_seq START WITH 50 INCREMENT BY 50 OWNED BY request.id;
+
+SELECT setval('request_id_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM request), false);
+
+ALTER TABLE request ALTER COLUMN id SET DEFAULT nextval('request_id_seq');
+
+ALTER TABLE items ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE items_id_seq START WITH 50 INCREMENT BY 50 OWNED BY items.id;
+
+SELECT setval('items_id_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM items), false);
+
+ALTER TABLE items ALTER COLUMN id SET DEFAULT nextval('items_id_seq');
+
+ALTER TABLE comments ALTER COLUMN id DROP IDENTITY;
+
+CREATE SEQUENCE comments_id_seq START WITH 50 INCREMENT BY 50 OWNED BY comments.id;
+
+SELECT setval('comments_id_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM comments), false);
+
+ALTER TABLE comments ALTER COLUMN id SET DEFAULT nextval('comments_id_seq');
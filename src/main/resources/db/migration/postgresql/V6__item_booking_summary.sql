@@ -0,0 +1,35 @@
+-- Сводка подтвержденных броней вещи: последняя начавшаяся, ближайшая будущая и их число.
+-- Чтение вещей берет last/next отсюда по первичному ключу вместо поиска по bookings.
+-- На брони внешних ключей нет: удаление брони не должно упираться в сводку, ее исправляет пересчет
+CREATE TABLE IF NOT EXISTS item_booking_summary
+(
+    item_id         BIGINT PRIMARY KEY REFERENCES items (id) ON DELETE CASCADE,
+    last_booking_id BIGINT,
+    last_booker_id  BIGINT,
+    last_start      TIMESTAMP WITHOUT TIME ZONE,
+    next_booking_id BIGINT,
+    next_booker_id  BIGINT,
+    next_start      TIMESTAMP WITHOUT TIME ZONE,
+    approved_count  BIGINT NOT NULL
+);
+
+-- Поиск строк, у которых ближайшая бронь уже началась
+CREATE INDEX IF NOT EXISTS item_booking_summary_next_start_idx ON item_booking_summary (next_start);
+
+-- Заполнение по существующим броням, при совпадении start берется бронь с меньшим id
+INSERT INTO item_booking_summary (item_id, approved_count, last_booking_id, next_booking_id)
+SELECT i.id,
+       (SELECT COUNT(*) FROM bookings b WHERE b.item_id = i.id AND b.status = 'APPROVED'),
+       (SELECT b.id FROM bookings b
+        WHERE b.item_id = i.id AND b.status = 'APPROVED' AND b.start_date < LOCALTIMESTAMP
+        ORDER BY b.start_date DESC, b.id LIMIT 1),
+       (SELECT b.id FROM bookings b
+        WHERE b.item_id = i.id AND b.status = 'APPROVED' AND b.start_date > LOCALTIMESTAMP
+        ORDER BY b.start_date, b.id LIMIT 1)
+FROM items i;
+
+UPDATE item_booking_summary s
+SET last_booker_id = (SELECT b.booker_id FROM bookings b WHERE b.id = s.last_booking_id),
+    last_start     = (SELECT b.start_date FROM bookings b WHERE b.id = s.last_booking_id),
+    next_booker_id = (SELECT b.booker_id FROM bookings b WHERE b.id = s.next_booking_id),
+    next_start     = (SELECT b.start_date FROM bookings b WHERE b.id = s.next_booking_id);
@@ -0,0 +1,3 @@
+-- Превью последних отзывов вещи и постраничная выдача GET /items/{itemId}/comments
+-- идут по (created DESC, id DESC) внутри вещи и читают индекс с начала диапазона item_id
+CREATE INDEX IF NOT EXISTS comments_item_id_created_idx ON comments (item_id, created DESC, id DESC);
@@ -0,0 +1,4 @@
+-- Право оставить отзыв: есть ли у арендатора подтвержденная начавшаяся бронь вещи.
+-- Пара (booker_id, item_id) сужает поиск до броней одного арендатора на одну вещь
+CREATE INDEX IF NOT EXISTS bookings_booker_id_item_id_status_start_date_idx
+    ON bookings (booker_id, item_id, status, start_date);
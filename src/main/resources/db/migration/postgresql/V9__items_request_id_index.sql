@@ -0,0 +1,2 @@
+-- Ответы на страницу запросов читаются одним запросом по списку request_id
+CREATE INDEX IF NOT EXISTS items_request_id_idx ON items (request_id, id);
@@ -0,0 +1,66 @@
+package ru.practicum.shareit;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//База, созданная до появления миграций, принимается как версия 1 без ее выполнения (baseline-on-migrate).
+//Все, что добавлено позже, должно приехать в нее следующими миграциями
+class MigrationBaselineTest {
+
+    private static EmbeddedPostgres postgres;
+
+    @BeforeAll
+    static void startPostgres() throws IOException {
+        postgres = EmbeddedPostgres.start();
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @Test
+    void migrate_shouldAddIndexesAndConstraints_whenDatabaseBaselined() throws IOException {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(postgres.getPostgresDatabase());
+        String schema = StreamUtils.copyToString(
+                new ClassPathResource("db/migration/postgresql/V1__init.sql").getInputStream(), StandardCharsets.UTF_8);
+        jdbcTemplate.execute(schema);
+        jdbcTemplate.execute("INSERT INTO users (id, name, email) VALUES (1, 'user', 'user@mail.ru')");
+        jdbcTemplate.execute("INSERT INTO items (id, name, description, is_available, owner_id) " +
+                "VALUES (1, 'item', 'description', true, 1)");
+        jdbcTemplate.execute("INSERT INTO comments (id, text, item_id, author_id) VALUES (1, 'comment', 1, 1)");
+
+        Flyway.configure()
+                .dataSource(postgres.getPostgresDatabase())
+                .locations("classpath:db/migration/postgresql")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+
+        List<String> indexes = jdbcTemplate.queryForList("SELECT indexname FROM pg_indexes", String.class);
+        assertThat(indexes).contains("items_owner_id_idx", "items_name_trgm_idx", "items_description_trgm_idx",
+                "bookings_item_id_start_date_idx", "bookings_item_id_status_start_date_idx",
+                "bookings_booker_id_start_date_idx");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_constraint WHERE conname = 'bookings_item_id_period_excl'", Integer.class))
+                .isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT is_nullable FROM information_schema.columns " +
+                "WHERE table_name = 'comments' AND column_name = 'created'", String.class)).isEqualTo("NO");
+        assertThat(jdbcTemplate.queryForObject("SELECT created FROM comments WHERE id = 1", LocalDateTime.class))
+                .isEqualTo(LocalDateTime.of(1970, 1, 1, 0, 0));
+    }
+}
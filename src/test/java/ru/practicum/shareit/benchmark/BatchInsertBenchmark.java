@@ -0,0 +1,131 @@
+package ru.practicum.shareit.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.ShareItApp;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.comment.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.Status;
+import ru.practicum.shareit.user.model.User;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//Запись множества строк в одной транзакции, время - на одну строку.
+//batchSize=1 - поведение до перехода на последовательности: с IDENTITY каждая вставка уходит отдельным запросом.
+//batchSize=50 - id берутся из последовательности блоками, вставки уходят JDBC-батчами.
+//БД - встроенный PostgreSQL: выигрыш батчей в сокращении обменов с сервером, а у H2 в памяти их нет
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchInsertBenchmark {
+
+    private static final int ROWS = 500;
+    private static final int USERS = 100;
+    private static final int ITEMS = 1_000;
+
+    @Param({"1", "50"})
+    private int batchSize;
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private EntityManager entityManager;
+    private TransactionTemplate transaction;
+    private final Random random = new Random(42);
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        context = SpringApplication.run(ShareItApp.class,
+                "--spring.profiles.active=postgres",
+                "--spring.main.web-application-type=none",
+                "--spring.main.banner-mode=off",
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                "--spring.flyway.enabled=true",
+                "--spring.jpa.properties.hibernate.generate_statistics=false",
+                "--logging.level.root=WARN");
+        seed(context.getBean(JdbcTemplate.class));
+        entityManager = context.getBean(EntityManager.class);
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        context.close();
+        postgres.close();
+    }
+
+    //Отклоненные брони не занимают период вещи, поэтому вставки не упираются в проверку пересечений
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void insertBookings() {
+        transaction.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            LocalDateTime start = LocalDateTime.now().plusDays(1);
+            for (int i = 0; i < ROWS; i++) {
+                entityManager.persist(Booking.builder()
+                        .start(start.plusHours(i))
+                        .end(start.plusHours(i + 1))
+                        .item(entityManager.getReference(Item.class, 1L + random.nextInt(ITEMS)))
+                        .booker(entityManager.getReference(User.class, 1L + random.nextInt(USERS)))
+                        .status(Status.REJECTED)
+                        .build());
+            }
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void insertComments() {
+        transaction.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            LocalDateTime created = LocalDateTime.now();
+            for (int i = 0; i < ROWS; i++) {
+                entityManager.persist(Comment.builder()
+                        .text("Отзыв")
+                        .item(entityManager.getReference(Item.class, 1L + random.nextInt(ITEMS)))
+                        .author(entityManager.getReference(User.class, 1L + random.nextInt(USERS)))
+                        .created(created)
+                        .build());
+            }
+        });
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate) {
+        for (long id = 1; id <= USERS; id++) {
+            jdbcTemplate.update("INSERT INTO users (id, name, email) VALUES (?, ?, ?)", id, "user" + id, "user" + id + "@email.com");
+        }
+        for (long id = 1; id <= ITEMS; id++) {
+            jdbcTemplate.update("INSERT INTO items (id, name, description, is_available, owner_id) " +
+                    "VALUES (?, ?, 'description', true, ?)", id, "item" + id, 1 + id % USERS);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.shareit.booking.BookingService;
+import ru.practicum.shareit.booking.dto.BookingDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookingServiceBenchmark {
+
+    @Param({"ALL", "CURRENT", "PAST", "FUTURE", "WAITING", "REJECTED"})
+    private ru.practicum.shareit.booking.model.State state;
+
+    private BookingService bookingService;
+    private long userId;
+
+    @Setup
+    public void setUp(ShareItBenchmarkState application) {
+        bookingService = application.bean(BookingService.class);
+    }
+
+    @Benchmark
+    public List<BookingDto> getAllBookingsOfUser(ShareItBenchmarkState application) {
+        userId = userId % ShareItBenchmarkState.USERS + 1;
+        return application.readOnlyTransaction.execute(status ->
+                bookingService.getAllBookingsOfUser(userId, state, 0L, ShareItBenchmarkState.PAGE_SIZE));
+    }
+}
@@ -0,0 +1,58 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.shareit.request.ItemRequestService;
+import ru.practicum.shareit.request.dto.ResponseItemRequestDto;
+import ru.practicum.shareit.request.mapper.ItemRequestMapper;
+import ru.practicum.shareit.request.model.ItemRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemRequestServiceBenchmark {
+
+    private ItemRequestService itemRequestService;
+    private ItemRequestMapper itemRequestMapper;
+    private long userId;
+
+    @Setup
+    public void setUp(ShareItBenchmarkState application) {
+        itemRequestService = application.bean(ItemRequestService.class);
+        itemRequestMapper = application.bean(ItemRequestMapper.class);
+    }
+
+    @Benchmark
+    public List<ResponseItemRequestDto> getByUserId(ShareItBenchmarkState application) {
+        userId = userId % ShareItBenchmarkState.USERS + 1;
+        return application.readOnlyTransaction.execute(status -> toDtos(
+                itemRequestService.getByUserId(userId, 0, ShareItBenchmarkState.PAGE_SIZE)));
+    }
+
+    @Benchmark
+    public List<ResponseItemRequestDto> getPage(ShareItBenchmarkState application) {
+        userId = userId % ShareItBenchmarkState.USERS + 1;
+        return application.readOnlyTransaction.execute(status -> toDtos(
+                itemRequestService.getPage(0, ShareItBenchmarkState.PAGE_SIZE, userId)));
+    }
+
+    private List<ResponseItemRequestDto> toDtos(List<ItemRequest> itemRequests) {
+        return itemRequestMapper.modelListToDtoList(itemRequests, itemRequestService.getAnswers(
+                itemRequests.stream().map(ItemRequest::getId).collect(Collectors.toList())));
+    }
+}
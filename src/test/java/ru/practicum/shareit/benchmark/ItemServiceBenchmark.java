@@ -0,0 +1,67 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.shareit.item.ItemService;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemServiceBenchmark {
+
+    private ItemService itemService;
+    private ItemMapper itemMapper;
+    private long ownerId;
+
+    @Setup
+    public void setUp(ShareItBenchmarkState application) {
+        itemService = application.bean(ItemService.class);
+        itemMapper = application.bean(ItemMapper.class);
+    }
+
+    @Benchmark
+    public List<ItemDto> getAllByUserId(ShareItBenchmarkState application) {
+        ownerId = ownerId % ShareItBenchmarkState.OWNERS + 1;
+        return application.readOnlyTransaction.execute(status ->
+                toDtos(itemService.getAllByUserId(ownerId, 0L, ShareItBenchmarkState.PAGE_SIZE)));
+    }
+
+    @Benchmark
+    public List<ItemDto> search(ShareItBenchmarkState application, SearchText searchText) {
+        return application.readOnlyTransaction.execute(status ->
+                toDtos(itemService.search(searchText.text, 0L, ShareItBenchmarkState.PAGE_SIZE)));
+    }
+
+    //Как в ItemController: превью отзывов всей страницы загружается двумя запросами
+    private List<ItemDto> toDtos(List<Item> items) {
+        List<Long> itemIds = items.stream().map(Item::getId).collect(Collectors.toList());
+        return itemMapper.modelListToDtoList(items, itemService.getCommentsPreview(itemIds, 10));
+    }
+
+    //Частое слово из названий и подстрока из середины описаний
+    @State(Scope.Benchmark)
+    public static class SearchText {
+
+        @Param({"дрель", "ударн"})
+        private String text;
+    }
+}
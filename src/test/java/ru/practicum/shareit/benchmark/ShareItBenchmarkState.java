@@ -0,0 +1,143 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.ShareItApp;
+import ru.practicum.shareit.booking.summary.ItemBookingSummaryChecker;
+import ru.practicum.shareit.item.search.ItemIndexUpdater;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+//Контекст приложения на H2 в памяти с данными объема, близкого к боевому. Генерация детерминирована,
+//поэтому прогоны на разных машинах и ветках сравнимы между собой
+@State(Scope.Benchmark)
+public class ShareItBenchmarkState {
+
+    static final int USERS = 2_000;
+    static final int OWNERS = 500;
+    static final int REQUESTS = 2_000;
+    static final int ITEMS = 10_000;
+    static final int BOOKINGS = 100_000;
+    static final int COMMENTS = 20_000;
+    static final int PAGE_SIZE = 20;
+
+    private static final int BATCH = 1_000;
+    private static final String[] WORDS = {"дрель", "отвертка", "пила", "лестница", "палатка",
+            "велосипед", "перфоратор", "самокат", "мангал", "проектор"};
+    private static final String[] ADJECTIVES = {"аккумуляторная", "ударная", "складная", "большая", "туристическая"};
+    private static final String[] STATUSES = {"APPROVED", "APPROVED", "APPROVED", "WAITING", "REJECTED"};
+
+    ConfigurableApplicationContext context;
+    TransactionTemplate readOnlyTransaction;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = SpringApplication.run(ShareItApp.class,
+                "--spring.main.web-application-type=none",
+                "--spring.main.banner-mode=off",
+                "--spring.datasource.url=jdbc:h2:mem:shareit_benchmark;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=none",
+                "--spring.sql.init.mode=never",
+                "--spring.flyway.enabled=true",
+                "--spring.jpa.properties.hibernate.generate_statistics=false",
+                "--logging.level.root=WARN");
+        //Схема накатывается миграциями, как в проде: data.sql из тестовых ресурсов здесь не нужен
+        seed(context.getBean(JdbcTemplate.class), new Random(42));
+        //Брони вставлены мимо сервиса, сводки вещей строятся по ним так же, как при rebuild-on-startup
+        context.getBean(ItemBookingSummaryChecker.class).rebuild();
+        //Вещи тоже вставлены мимо сервиса, поисковый индекс, построенный на старте, перестраивается по ним
+        context.getBean(ItemIndexUpdater.class).rebuild();
+        //Контроллеры маппят сущности в DTO внутри open-session-in-view, здесь его роль играет транзакция
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate, Random random) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= USERS; id++) {
+            rows.add(new Object[]{id, "user" + id, "user" + id + "@email.com"});
+        }
+        insert(jdbcTemplate, "INSERT INTO users (id, name, email) VALUES (?, ?, ?)", rows);
+
+        for (long id = 1; id <= REQUESTS; id++) {
+            rows.add(new Object[]{id, "Нужна " + word(random), timestamp(now.minusMinutes(random.nextInt(525_600))),
+                    1 + random.nextInt(USERS)});
+        }
+        insert(jdbcTemplate, "INSERT INTO request (id, description, created, requestor_id) VALUES (?, ?, ?, ?)", rows);
+
+        long[] ownerOfItem = new long[ITEMS + 1];
+        for (long id = 1; id <= ITEMS; id++) {
+            String word = word(random);
+            ownerOfItem[(int) id] = 1 + random.nextInt(OWNERS);
+            Long requestId = random.nextInt(10) < 3 ? (long) (1 + random.nextInt(REQUESTS)) : null;
+            rows.add(new Object[]{id, word + " " + id, ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + word,
+                    random.nextInt(10) < 9, ownerOfItem[(int) id], requestId});
+        }
+        insert(jdbcTemplate, "INSERT INTO items (id, name, description, is_available, owner_id, request_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", rows);
+
+        for (long id = 1; id <= BOOKINGS; id++) {
+            int itemId = 1 + random.nextInt(ITEMS);
+            LocalDateTime start = now.plusHours(random.nextInt(17_520) - 8_760L);
+            rows.add(new Object[]{id, timestamp(start), timestamp(start.plusHours(1 + random.nextInt(336))), itemId,
+                    booker(random, ownerOfItem[itemId]), STATUSES[random.nextInt(STATUSES.length)]});
+        }
+        insert(jdbcTemplate, "INSERT INTO bookings (id, start_date, end_date, item_id, booker_id, status) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", rows);
+
+        for (long id = 1; id <= COMMENTS; id++) {
+            rows.add(new Object[]{id, "Отзыв " + id, 1 + random.nextInt(ITEMS), 1 + random.nextInt(USERS),
+                    timestamp(now.minusMinutes(random.nextInt(525_600)))});
+        }
+        insert(jdbcTemplate, "INSERT INTO comments (id, text, item_id, author_id, created) VALUES (?, ?, ?, ?, ?)", rows);
+
+        //Идентификаторы заданы явно, поэтому последовательности сдвигаются за сгенерированные строки.
+        //Hibernate выдает id блоками по 50, значение последовательности - верхняя граница блока
+        for (String table : List.of("users", "request", "items", "bookings", "comments")) {
+            Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+            jdbcTemplate.execute("ALTER SEQUENCE " + table + "_id_seq RESTART WITH " + (max + 50));
+        }
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(rows.size(), from + BATCH)));
+        }
+        rows.clear();
+    }
+
+    private static long booker(Random random, long ownerId) {
+        long bookerId = 1 + random.nextInt(USERS);
+        return bookerId == ownerId ? bookerId % USERS + 1 : bookerId;
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static Timestamp timestamp(LocalDateTime value) {
+        return Timestamp.valueOf(value);
+    }
+}
@@ -0,0 +1,99 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import ru.practicum.shareit.ShareItApp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Время подъема контекста на файловой H2 при разных способах получить схему:
+//recreate - прежний запуск: DROP/CREATE скриптом на каждом старте, данные теряются;
+//fresh - первый запуск на пустой БД, Flyway накатывает все миграции;
+//migrated - обычный перезапуск: БД уже на последней версии, Flyway сверяет историю, Hibernate валидирует маппинги
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    @Param({"recreate", "fresh", "migrated"})
+    public String schema;
+
+    private Path directory;
+    private int run;
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("shareit-startup");
+        if ("migrated".equals(schema)) {
+            start().close();
+        }
+    }
+
+    @Benchmark
+    public ConfigurableApplicationContext coldStart() {
+        context = start();
+        return context;
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDirectory() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    private ConfigurableApplicationContext start() {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.main.web-application-type=none",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--spring.datasource.url=jdbc:h2:" + databaseFile()));
+        if ("recreate".equals(schema)) {
+            args.addAll(List.of(
+                    "--spring.flyway.enabled=false",
+                    "--spring.sql.init.mode=always",
+                    "--spring.sql.init.schema-locations=classpath:test-schema.sql",
+                    "--spring.jpa.hibernate.ddl-auto=none"));
+        } else {
+            args.addAll(List.of(
+                    "--spring.flyway.enabled=true",
+                    "--spring.sql.init.mode=never",
+                    "--spring.jpa.hibernate.ddl-auto=validate"));
+        }
+        return SpringApplication.run(ShareItApp.class, args.toArray(new String[0]));
+    }
+
+    //Для fresh каждый запуск получает свою пустую БД, остальные переиспользуют одну
+    private Path databaseFile() {
+        return "fresh".equals(schema) ? directory.resolve("shareit_" + run++) : directory.resolve("shareit");
+    }
+}
@@ -1,18 +1,47 @@
 package ru.practicum.shareit.booking;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.CreateBookingDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.summary.ItemBookingSummaryChecker;
+import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.model.Status;
+import ru.practicum.shareit.shared.exception.ConflictException;
+import ru.practicum.shareit.user.model.User;
 
+import javax.persistence.EntityManagerFactory;
 import java.time.LocalDateTime;
-
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -28,6 +57,21 @@ class BookingControllerTest {
     @Autowired
     MockMvc mockMvc;
 
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    BookingService bookingService;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    ItemBookingSummaryChecker itemBookingSummaryChecker;
+
     @Test
     void create_shouldReturnCorrectJson_whenCorrectId() throws Exception {
         LocalDateTime start = LocalDateTime.now().plusDays(1);
@@ -113,6 +157,97 @@ class BookingControllerTest {
                 .andExpectAll(status().isBadRequest());
     }
 
+    @Test
+    void create_shouldReturn409_whenPeriodOverlapsWaitingBooking() throws Exception {
+        //TIMESTAMP в БД хранит микросекунды: без усечения граница соседней брони могла бы округлиться внахлест
+        LocalDateTime start = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+        CreateBookingDto first = CreateBookingDto.builder()
+                .start(start)
+                .end(start.plusDays(4))
+                .itemId(1L)
+                .status(Status.WAITING)
+                .build();
+        CreateBookingDto overlapping = CreateBookingDto.builder()
+                .start(start.plusDays(2))
+                .end(start.plusDays(6))
+                .itemId(1L)
+                .status(Status.WAITING)
+                .build();
+        CreateBookingDto adjacent = CreateBookingDto.builder()
+                .start(start.plusDays(4))
+                .end(start.plusDays(6))
+                .itemId(1L)
+                .status(Status.WAITING)
+                .build();
+
+        mockMvc.perform(post("/bookings")
+                        .header("Content-Type", "application/json")
+                        .header("X-Sharer-User-Id", 2)
+                        .content(objectMapper.writeValueAsString(first)))
+                .andExpectAll(status().isOk());
+
+        mockMvc.perform(post("/bookings")
+                        .header("Content-Type", "application/json")
+                        .header("X-Sharer-User-Id", 3)
+                        .content(objectMapper.writeValueAsString(overlapping)))
+                .andExpectAll(status().isConflict());
+
+        mockMvc.perform(post("/bookings")
+                        .header("Content-Type", "application/json")
+                        .header("X-Sharer-User-Id", 3)
+                        .content(objectMapper.writeValueAsString(adjacent)))
+                .andExpectAll(status().isOk());
+    }
+
+    @Test
+    void create_shouldKeepSingleBooking_whenConcurrentOverlappingRequests() throws Exception {
+        int bookers = 8;
+        for (int i = 4; i < 4 + bookers; i++) {
+            jdbcTemplate.update("INSERT INTO users (id, name, email) VALUES (?, ?, ?)", i, "user" + i, "user" + i + "@email.com");
+        }
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        ExecutorService executor = Executors.newFixedThreadPool(bookers);
+        CountDownLatch ready = new CountDownLatch(bookers);
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        try {
+            for (int i = 4; i < 4 + bookers; i++) {
+                long bookerId = i;
+                executor.submit(() -> {
+                    Booking booking = Booking.builder()
+                            .start(start.plusHours(bookerId))
+                            .end(start.plusDays(2))
+                            .item(new Item(1L))
+                            .booker(new User(bookerId))
+                            .status(Status.WAITING)
+                            .build();
+                    ready.countDown();
+                    try {
+                        go.await();
+                        bookingService.create(booking);
+                        created.incrementAndGet();
+                    } catch (ConflictException e) {
+                        conflicts.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            ready.await();
+            go.countDown();
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        }
+
+        assertThat(created.get()).isEqualTo(1);
+        assertThat(conflicts.get()).isEqualTo(bookers - 1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM bookings WHERE item_id = 1 AND start_date > ?", Integer.class, LocalDateTime.now()))
+                .isEqualTo(1);
+    }
+
     @Test
     void approve_shouldReturnApprovedStatus_whenApprove() throws Exception {
         mockMvc.perform(patch("/bookings/{bookingId}", 1)
@@ -125,6 +260,74 @@ class BookingControllerTest {
                 );
     }
 
+    @Test
+    void approve_shouldUpdateItemSummary_whenApprove() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        mockMvc.perform(post("/bookings")
+                        .header("Content-Type", "application/json")
+                        .header("X-Sharer-User-Id", 2L)
+                        .content(objectMapper.writeValueAsString(createBookingDto(1L, start, start.plusDays(1)))))
+                .andExpect(status().isOk());
+        for (long bookingId : List.of(1L, 4L)) {
+            mockMvc.perform(patch("/bookings/{bookingId}", bookingId)
+                            .param("approved", "true")
+                            .header("X-Sharer-User-Id", 1))
+                    .andExpect(status().isOk());
+        }
+
+        Map<String, Object> summary = jdbcTemplate.queryForMap("SELECT * FROM item_booking_summary WHERE item_id = 1");
+        assertThat(summary.get("approved_count")).isEqualTo(2L);
+        assertThat(summary.get("last_booking_id")).isEqualTo(1L);
+        assertThat(summary.get("last_booker_id")).isEqualTo(3L);
+        assertThat(summary.get("next_booking_id")).isEqualTo(4L);
+        assertThat(summary.get("next_booker_id")).isEqualTo(2L);
+        assertThat(itemBookingSummaryChecker.check(false)).isZero();
+        mockMvc.perform(get("/items/{itemId}", 1)
+                        .header("X-Sharer-User-Id", 1))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.lastBooking.id").value(1),
+                        jsonPath("$.nextBooking.id").value(4)
+                );
+    }
+
+    @Test
+    void rollForward_shouldMoveStartedNextBookingToLast_whenNextBookingStarted() throws Exception {
+        jdbcTemplate.update("UPDATE item_booking_summary SET last_booking_id = NULL, last_booker_id = NULL, " +
+                "last_start = NULL, next_booking_id = 3, next_booker_id = 1, next_start = '2022-01-01 11:30:30' " +
+                "WHERE item_id = 3");
+
+        //Пока строка не сдвинута, чтение вещи ей не верит и считает брони по bookings
+        mockMvc.perform(get("/items/{itemId}", 3)
+                        .header("X-Sharer-User-Id", 3))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.lastBooking.id").value(3),
+                        jsonPath("$.nextBooking").isEmpty()
+                );
+        itemBookingSummaryChecker.rollForward();
+
+        Map<String, Object> summary = jdbcTemplate.queryForMap("SELECT * FROM item_booking_summary WHERE item_id = 3");
+        assertThat(summary.get("last_booking_id")).isEqualTo(3L);
+        assertThat(summary.get("next_booking_id")).isNull();
+        assertThat(summary.get("next_start")).isNull();
+    }
+
+    @Test
+    void summaryCheck_shouldRebuildSummaries_whenTableDiverged() {
+        jdbcTemplate.update("DELETE FROM item_booking_summary WHERE item_id = 3");
+        jdbcTemplate.update("UPDATE item_booking_summary SET approved_count = 5, last_booking_id = 2 WHERE item_id = 1");
+
+        assertThat(itemBookingSummaryChecker.check(false)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM item_booking_summary", Long.class)).isEqualTo(2L);
+        assertThat(itemBookingSummaryChecker.rebuild()).isEqualTo(2);
+        assertThat(itemBookingSummaryChecker.check(false)).isZero();
+        Map<String, Object> summary = jdbcTemplate.queryForMap("SELECT * FROM item_booking_summary WHERE item_id = 3");
+        assertThat(summary.get("approved_count")).isEqualTo(1L);
+        assertThat(summary.get("last_booking_id")).isEqualTo(3L);
+        assertThat(summary.get("last_booker_id")).isEqualTo(1L);
+    }
+
     @Test
     void approve_shouldReturnRejectStatus_whenReject() throws Exception {
         mockMvc.perform(patch("/bookings/{bookingId}", 1)
@@ -414,4 +617,282 @@ class BookingControllerTest {
                         content().json("[]")
                 );
     }
-}
\ No newline at end of file
+
+    @Test
+    void getAllBookingsOfUserItems_shouldReturnNextPage_whenCursorFromPreviousPage() throws Exception {
+        MvcResult firstPage = mockMvc.perform(get("/bookings/owner")
+                        .header("Content-Type", "application/json")
+                        .param("size", "1")
+                        .header("X-Sharer-User-Id", 1))
+                .andExpectAll(
+                        status().isOk(),
+                        header().exists("X-Next-Cursor"),
+                        jsonPath("$.[0].booker.id").value(2)
+                )
+                .andReturn();
+        String cursor = firstPage.getResponse().getHeader("X-Next-Cursor");
+
+        mockMvc.perform(get("/bookings/owner")
+                        .header("Content-Type", "application/json")
+                        .param("size", "1")
+                        .param("cursor", cursor)
+                        .header("X-Sharer-User-Id", 1))
+                .andExpectAll(
+                        status().isOk(),
+                        header().exists("X-Next-Cursor"),
+                        jsonPath("$.length()").value(1),
+                        jsonPath("$.[0].booker.id").value(3)
+                );
+    }
+
+    @Test
+    void getAllBookingsOfUser_shouldReturnEmptyPageWithoutCursor_whenLastBookingPassed() throws Exception {
+        MvcResult firstPage = mockMvc.perform(get("/bookings")
+                        .header("Content-Type", "application/json")
+                        .param("size", "1")
+                        .header("X-Sharer-User-Id", 3))
+                .andExpect(status().isOk())
+                .andReturn();
+        String cursor = firstPage.getResponse().getHeader("X-Next-Cursor");
+
+        mockMvc.perform(get("/bookings")
+                        .header("Content-Type", "application/json")
+                        .param("cursor", cursor)
+                        .header("X-Sharer-User-Id", 3))
+                .andExpectAll(
+                        status().isOk(),
+                        header().doesNotExist("X-Next-Cursor"),
+                        content().json("[]")
+                );
+    }
+
+    @Test
+    void getAllBookingsOfUser_shouldReturn400_whenInvalidCursor() throws Exception {
+        mockMvc.perform(get("/bookings")
+                        .header("Content-Type", "application/json")
+                        .param("cursor", "not-a-cursor")
+                        .header("X-Sharer-User-Id", 3))
+                .andExpectAll(
+                        status().isBadRequest()
+                );
+    }
+
+    @Test
+    void getAllBookingsOfUser_shouldIssueSameStatementCount_whenPageSizeGrows() throws Exception {
+        insertBookingsOnDistinctItems();
+
+        //Прогревочный запрос: существование пользователя проверяется в БД только при первом обращении
+        countStatements("/bookings", 2, 1);
+        long smallPage = countStatements("/bookings", 2, 5);
+        long largePage = countStatements("/bookings", 2, 20);
+
+        assertThat(largePage).isEqualTo(smallPage);
+    }
+
+    @Test
+    void getAllBookingsOfUserItems_shouldIssueSameStatementCount_whenPageSizeGrows() throws Exception {
+        insertBookingsOnDistinctItems();
+
+        //Прогревочный запрос: существование пользователя проверяется в БД только при первом обращении
+        countStatements("/bookings/owner", 1, 1);
+        long smallPage = countStatements("/bookings/owner", 1, 5);
+        long largePage = countStatements("/bookings/owner", 1, 20);
+
+        assertThat(largePage).isEqualTo(smallPage);
+    }
+
+    @Test
+    void getAllBookingsOfUser_shouldRecordStateTimerAndRequestStatistics_whenCorrectRequest() throws Exception {
+        mockMvc.perform(get("/bookings")
+                        .header("Content-Type", "application/json")
+                        .param("state", "REJECTED")
+                        .header("X-Sharer-User-Id", 2))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(1)
+                );
+
+        Timer timer = meterRegistry.get("shareit.bookings.list")
+                .tags("role", "booker", "pagination", "offset", "state", "REJECTED")
+                .timer();
+        DistributionSummary statements = meterRegistry.get("shareit.http.sql.statements")
+                .tags("method", "GET", "uri", "/bookings")
+                .summary();
+        DistributionSummary entityLoads = meterRegistry.get("shareit.http.entity.loads")
+                .tags("method", "GET", "uri", "/bookings")
+                .summary();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(statements.count()).isEqualTo(1);
+        assertThat(statements.max()).isEqualTo(2);
+        assertThat(entityLoads.max()).isZero();
+    }
+
+    @Test
+    void createBatch_shouldReturnResultPerEntry_whenEntriesMixed() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        List<CreateBookingDto> batch = List.of(
+                createBookingDto(1L, start, start.plusDays(2)),
+                createBookingDto(3L, start, start.plusDays(2)),
+                createBookingDto(2L, start, start.plusDays(2)),
+                createBookingDto(13333L, start, start.plusDays(2)),
+                createBookingDto(1L, start.plusDays(1), start.plusDays(3)),
+                createBookingDto(1L, LocalDateTime.now().minusDays(1), start));
+
+        mockMvc.perform(post("/bookings/batch")
+                        .header("Content-Type", "application/json")
+                        .header("X-Sharer-User-Id", 2L)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(6),
+                        jsonPath("$[0].index").value(0),
+                        jsonPath("$[0].booking.id").value(4),
+                        jsonPath("$[0].booking.status").value("WAITING"),
+                        jsonPath("$[0].error").doesNotExist(),
+                        jsonPath("$[1].booking.id").value(5),
+                        jsonPath("$[2].booking").doesNotExist(),
+                        jsonPath("$[2].error").isNotEmpty(),
+                        jsonPath("$[3].error").isNotEmpty(),
+                        jsonPath("$[4].error").isNotEmpty(),
+                        jsonPath("$[5].index").value(5),
+                        jsonPath("$[5].error").isNotEmpty()
+                );
+
+        Integer created = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bookings WHERE booker_id = 2", Integer.class);
+        assertThat(created).isEqualTo(3);
+    }
+
+    @Test
+    void createBatch_shouldReturn404_whenNotFoundUserId() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        List<CreateBookingDto> batch = List.of(createBookingDto(1L, start, start.plusDays(2)));
+
+        mockMvc.perform(post("/bookings/batch")
+                        .header("Content-Type", "application/json")
+                        .header("X-Sharer-User-Id", 10000L)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpectAll(status().isNotFound());
+    }
+
+    @Test
+    void createBatch_shouldReturn400_whenEmptyBatch() throws Exception {
+        mockMvc.perform(post("/bookings/batch")
+                        .header("Content-Type", "application/json")
+                        .header("X-Sharer-User-Id", 2L)
+                        .content("[]"))
+                .andExpectAll(status().isBadRequest());
+    }
+
+    //Число запросов к БД не зависит от размера пакета: вещи, занятые периоды и вставка - по одному на пакет.
+    //Первый пакет прогревает кэш пользователей и забирает блок id из последовательности
+    @Test
+    void createBatch_shouldIssueSameStatementCount_whenBatchGrows() throws Exception {
+        insertBookingsOnDistinctItems();
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        countBatchStatements(start, 1);
+
+        long small = countBatchStatements(start.plusDays(10), 2);
+        long large = countBatchStatements(start.plusDays(20), 10);
+
+        assertThat(large).isEqualTo(small);
+    }
+
+    @Test
+    void export_shouldStreamWholeHistoryAsNdjson_whenCorrectUserId() throws Exception {
+        insertBookingsOnDistinctItems();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        MvcResult started = mockMvc.perform(get("/bookings/export")
+                        .header("X-Sharer-User-Id", 2L))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType("application/x-ndjson")
+                )
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = body.lines().collect(Collectors.toList());
+        List<BookingDto> bookings = new ArrayList<>();
+        for (String line : lines) {
+            bookings.add(objectMapper.readValue(line, BookingDto.class));
+        }
+        assertThat(bookings).hasSize(21);
+        assertThat(bookings).isSortedAccordingTo(Comparator.comparing(BookingDto::getStart).reversed());
+        assertThat(bookings).allSatisfy(booking -> assertThat(booking.getBooker().getId()).isEqualTo(2L));
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void export_shouldReturn404_whenNotFoundUserId() throws Exception {
+        mockMvc.perform(get("/bookings/export")
+                        .header("X-Sharer-User-Id", 10000L))
+                .andExpectAll(status().isNotFound());
+    }
+
+    //10 новых владельцев с вещью каждый; пользователь 2 бронирует их вещи, новые пользователи - вещи пользователя 1
+    private void insertBookingsOnDistinctItems() {
+        for (int i = 4; i <= 13; i++) {
+            jdbcTemplate.update("INSERT INTO users (id, name, email) VALUES (?, ?, ?)", i, "user" + i, "user" + i + "@email.com");
+            jdbcTemplate.update("INSERT INTO request (id, description, created, requestor_id) VALUES (?, 'request', ?, 3)",
+                    i, LocalDateTime.now());
+            jdbcTemplate.update("INSERT INTO items (id, name, description, is_available, owner_id, request_id) " +
+                    "VALUES (?, ?, 'description', true, ?, ?)", i, "item" + i, i, i);
+            for (int j = 0; j < 2; j++) {
+                LocalDateTime start = LocalDateTime.now().minusDays(i * 2L + j);
+                jdbcTemplate.update("INSERT INTO bookings (start_date, end_date, item_id, booker_id, status) " +
+                        "VALUES (?, ?, ?, 2, 'APPROVED')", start, start.plusHours(1), i);
+                jdbcTemplate.update("INSERT INTO bookings (start_date, end_date, item_id, booker_id, status) " +
+                        "VALUES (?, ?, ?, ?, 'APPROVED')", start, start.plusHours(1), 1 + j, i);
+            }
+        }
+        //Строки вставлены мимо Hibernate, его последовательности продолжают нумерацию после них
+        for (String table : List.of("users", "request", "items", "bookings")) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + table + "_id_seq RESTART WITH (SELECT MAX(id) + 50 FROM " + table + ")");
+        }
+    }
+
+    private long countStatements(String path, long userId, int size) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get(path)
+                        .header("Content-Type", "application/json")
+                        .param("size", String.valueOf(size))
+                        .header("X-Sharer-User-Id", userId))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(size)
+                );
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long countBatchStatements(LocalDateTime start, int size) throws Exception {
+        List<CreateBookingDto> batch = new ArrayList<>();
+        for (long itemId = 4; itemId < 4 + size; itemId++) {
+            batch.add(createBookingDto(itemId, start, start.plusDays(1)));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(post("/bookings/batch")
+                        .header("Content-Type", "application/json")
+                        .header("X-Sharer-User-Id", 2L)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$[*].booking.id", hasSize(size)),
+                        jsonPath("$[*].error", everyItem(nullValue()))
+                );
+        return statistics.getPrepareStatementCount();
+    }
+
+    private CreateBookingDto createBookingDto(Long itemId, LocalDateTime start, LocalDateTime end) {
+        return CreateBookingDto.builder()
+                .start(start)
+                .end(end)
+                .itemId(itemId)
+                .status(Status.WAITING)
+                .build();
+    }
+}
@@ -0,0 +1,176 @@
+package ru.practicum.shareit.booking;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ReflectionUtils;
+import ru.practicum.shareit.request.model.Status;
+import ru.practicum.shareit.shared.pagination.OffsetBasedPageRequest;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//Схема накатывается миграциями Flyway, а не test-schema.sql: проверяются индексы, которые уйдут в прод.
+//Каждый @Query из BookingRepository выполняется, а отправленный им SQL прогоняется через EXPLAIN
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:booking_index_usage;DB_CLOSE_DELAY=-1",
+        "spring.sql.init.mode=never",
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+                "ru.practicum.shareit.booking.BookingIndexUsageTest$SqlCapture"
+})
+class BookingIndexUsageTest {
+
+    private static final int USERS = 100;
+    private static final int ITEMS = 500;
+    private static final int BOOKINGS = 10_000;
+    private static final String[] STATUSES = {"APPROVED", "APPROVED", "WAITING", "REJECTED"};
+
+    @Autowired
+    BookingRepository bookingRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    //На пустых таблицах планировщику H2 все индексы обходятся одинаково, поэтому нужны данные и статистика
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.execute("TRUNCATE TABLE bookings");
+        jdbcTemplate.execute("DELETE FROM items");
+        jdbcTemplate.execute("DELETE FROM users");
+        List<Object[]> users = new ArrayList<>();
+        List<Object[]> items = new ArrayList<>();
+        List<Object[]> bookings = new ArrayList<>();
+        for (long id = 1; id <= USERS; id++) {
+            users.add(new Object[]{id, "user" + id, "user" + id + "@email.com"});
+        }
+        for (long id = 1; id <= ITEMS; id++) {
+            items.add(new Object[]{id, "item" + id, 1 + id % USERS});
+        }
+        LocalDateTime start = LocalDateTime.of(2022, 1, 1, 12, 0);
+        for (long id = 1; id <= BOOKINGS; id++) {
+            LocalDateTime bookingStart = start.plusHours(id);
+            bookings.add(new Object[]{id, bookingStart, bookingStart.plusDays(1), 1 + id % ITEMS, 1 + id % USERS,
+                    STATUSES[(int) (id % STATUSES.length)]});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, name, email) VALUES (?, ?, ?)", users);
+        jdbcTemplate.batchUpdate("INSERT INTO items (id, name, description, is_available, owner_id) " +
+                "VALUES (?, ?, 'description', true, ?)", items);
+        jdbcTemplate.batchUpdate("INSERT INTO bookings (id, start_date, end_date, item_id, booker_id, status) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", bookings);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void repositoryQueries_shouldNotScanTables_whenExplained() {
+        Map<String, String> plans = explainRepositoryQueries();
+        Map<String, String> tableScans = new TreeMap<>();
+        plans.forEach((method, plan) -> {
+            if (plan.contains("tableScan")) {
+                tableScans.put(method, plan);
+            }
+        });
+
+        assertThat(plans).isNotEmpty();
+        assertThat(tableScans).isEmpty();
+    }
+
+    @Test
+    void bookerQueries_shouldUseBookerIndexes_whenExplained() {
+        Map<String, String> plans = explainRepositoryQueries();
+
+        assertThat(plans.get("findCurrentOfBooker")).contains("BOOKINGS_BOOKER_ID_START_DATE_IDX");
+        assertThat(plans.get("findCurrentOfBookerAfterCursor")).contains("BOOKINGS_BOOKER_ID_START_DATE_IDX");
+        assertThat(plans.get("findByStatusOfBooker")).contains("BOOKINGS_BOOKER_ID_STATUS_START_DATE_IDX");
+        assertThat(plans.get("findPastOfBooker")).contains("BOOKINGS_BOOKER_ID_STATUS_START_DATE_IDX");
+        assertThat(plans.get("findFutureOfBooker")).contains("BOOKINGS_BOOKER_ID_STATUS_START_DATE_IDX");
+    }
+
+    @Test
+    void commentEligibility_shouldProbeBookerItemIndex_whenExplained() {
+        Map<String, String> plans = explainRepositoryQueries();
+
+        assertThat(plans.get("existsStartedOfBookerOnItem")).contains("BOOKINGS_BOOKER_ID_ITEM_ID_STATUS_START_DATE_IDX");
+    }
+
+    private Map<String, String> explainRepositoryQueries() {
+        Map<String, String> plans = new TreeMap<>();
+        for (Method method : BookingRepository.class.getDeclaredMethods()) {
+            if (method.getAnnotation(Query.class) == null) {
+                continue;
+            }
+            String plan = captureSql(method).stream()
+                    .map(sql -> jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class))
+                    .reduce("", String::concat);
+            plans.put(method.getName(), plan);
+        }
+        return plans;
+    }
+
+    //Метод репозитория вызывается с типовыми аргументами, его SQL перехватывает SqlCapture
+    private List<String> captureSql(Method method) {
+        Object[] args = Arrays.stream(method.getParameters()).map(this::sampleArgument).toArray();
+        return transactionTemplate.execute(status -> {
+            SqlCapture.STATEMENTS.clear();
+            Object result = ReflectionUtils.invokeMethod(method, bookingRepository, args);
+            if (result instanceof Stream) {
+                ((Stream<?>) result).close();
+            }
+            return new ArrayList<>(SqlCapture.STATEMENTS);
+        });
+    }
+
+    private Object sampleArgument(Parameter parameter) {
+        Class<?> type = parameter.getType();
+        if (type == Long.class) {
+            return 1L;
+        }
+        if (type == LocalDateTime.class) {
+            return LocalDateTime.of(2022, 6, 1, 12, 0);
+        }
+        if (type == Status.class) {
+            return Status.APPROVED;
+        }
+        if (type == OffsetBasedPageRequest.class) {
+            return new OffsetBasedPageRequest(0, 20);
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            Type element = ((ParameterizedType) parameter.getParameterizedType()).getActualTypeArguments()[0];
+            return element == Status.class ? List.of(Status.APPROVED, Status.WAITING) : List.of(1L, 2L);
+        }
+        throw new IllegalArgumentException("Нет типового значения для параметра " + parameter);
+    }
+
+    public static class SqlCapture implements StatementInspector {
+
+        static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ru.practicum.shareit.booking;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+
+@SpringBootTest
+@ActiveProfiles("postgres")
+class BookingOverlapConstraintTest {
+
+    private static final String INSERT_BOOKING = "INSERT INTO bookings (start_date, end_date, item_id, booker_id, status) " +
+            "VALUES (?, ?, 1, 2, ?)";
+
+    private static EmbeddedPostgres postgres;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private final LocalDateTime start = LocalDateTime.now().plusDays(1);
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) throws IOException {
+        postgres = EmbeddedPostgres.start();
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+        registry.add("spring.flyway.enabled", () -> "true");
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    //Вставка идет мимо сервиса: проверяется сама БД, без блокировок приложения
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.execute("TRUNCATE users, request, items, bookings, comments RESTART IDENTITY CASCADE");
+        jdbcTemplate.update("INSERT INTO users (id, name, email) VALUES (1, 'owner', 'owner@email.com'), (2, 'booker', 'booker@email.com')");
+        jdbcTemplate.update("INSERT INTO items (id, name, description, is_available, owner_id) VALUES (1, 'Дрель', 'Простая дрель', true, 1)");
+        jdbcTemplate.update(INSERT_BOOKING, start, start.plusDays(4), "WAITING");
+    }
+
+    @Test
+    void insert_shouldFail_whenPeriodOverlapsWaitingBooking() {
+        assertThatThrownBy(() -> jdbcTemplate.update(INSERT_BOOKING, start.plusDays(2), start.plusDays(6), "APPROVED"))
+                .isInstanceOf(DataIntegrityViolationException.class)
+                .hasMessageContaining("bookings_item_id_period_excl");
+    }
+
+    @Test
+    void insert_shouldSucceed_whenPeriodIsAdjacentOrOverlappingBookingRejected() {
+        assertThatNoException().isThrownBy(() -> {
+            jdbcTemplate.update(INSERT_BOOKING, start.plusDays(4), start.plusDays(6), "WAITING");
+            jdbcTemplate.update(INSERT_BOOKING, start.plusDays(1), start.plusDays(3), "REJECTED");
+        });
+    }
+}
@@ -0,0 +1,102 @@
+package ru.practicum.shareit.booking;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.Status;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//Пропускная способность создания броней, когда все потоки бронируют одну вещь, против разных вещей.
+//Запуск: mvn test -Pbenchmark
+@Slf4j
+@Tag("benchmark")
+@SpringBootTest
+@Sql({"/test-schema.sql", "/data.sql"})
+class HotItemBookingBenchmarkTest {
+
+    private static final int THREADS = 8;
+    private static final int BOOKINGS_PER_THREAD = 250;
+    private static final long FIRST_BOOKER_ID = 100;
+    private static final long FIRST_COLD_ITEM_ID = 100;
+
+    @Autowired
+    BookingService bookingService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        for (int i = 0; i < THREADS; i++) {
+            long id = FIRST_BOOKER_ID + i;
+            jdbcTemplate.update("INSERT INTO users (id, name, email) VALUES (?, ?, ?)", id, "user" + id, "user" + id + "@email.com");
+            jdbcTemplate.update("INSERT INTO items (id, name, description, is_available, owner_id) " +
+                    "VALUES (?, ?, 'description', true, 1)", FIRST_COLD_ITEM_ID + i, "item" + i);
+        }
+    }
+
+    @Test
+    void create_hotItem() throws Exception {
+        double opsPerSecond = run(thread -> 1L);
+        log.info("HotItemBookingBenchmark: одна вещь на {} потоков - {} броней/с", THREADS, Math.round(opsPerSecond));
+    }
+
+    @Test
+    void create_distinctItems() throws Exception {
+        double opsPerSecond = run(thread -> FIRST_COLD_ITEM_ID + thread);
+        log.info("HotItemBookingBenchmark: своя вещь у каждого из {} потоков - {} броней/с", THREADS, Math.round(opsPerSecond));
+    }
+
+    //Интервалы не пересекаются, так что каждая бронь создается и время уходит на проверку и вставку, а не на 409
+    private double run(ItemOfThread itemOfThread) throws Exception {
+        LocalDateTime base = LocalDateTime.now().plusDays(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        long started = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < BOOKINGS_PER_THREAD; i++) {
+                    LocalDateTime start = base.plusHours((long) i * THREADS + thread);
+                    bookingService.create(Booking.builder()
+                            .start(start)
+                            .end(start.plusMinutes(59))
+                            .item(new Item(itemOfThread.itemId(thread)))
+                            .booker(new User(FIRST_BOOKER_ID + thread))
+                            .status(Status.WAITING)
+                            .build());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - started;
+        executor.shutdown();
+
+        int total = THREADS * BOOKINGS_PER_THREAD;
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bookings WHERE start_date > ?",
+                Integer.class, LocalDateTime.now())).isEqualTo(total);
+        return total * 1_000_000_000.0 / elapsed;
+    }
+
+    private interface ItemOfThread {
+        long itemId(int thread);
+    }
+}
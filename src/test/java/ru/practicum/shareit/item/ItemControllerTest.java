@@ -1,17 +1,37 @@
 package ru.practicum.shareit.item;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.comment.dto.CreateCommentDto;
 import ru.practicum.shareit.item.dto.CreateItemDto;
 import ru.practicum.shareit.item.dto.ItemDto;
-
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.ItemIndexUpdater;
+
+import javax.persistence.EntityManagerFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -27,6 +47,21 @@ class ItemControllerTest {
     @Autowired
     MockMvc mockMvc;
 
+    @Autowired
+    ItemIndexUpdater itemIndexUpdater;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    //Данные заливаются скриптами после старта контекста, а индекс поиска строится на старте - перестраиваем
+    @BeforeEach
+    void rebuildSearchIndex() {
+        itemIndexUpdater.rebuild();
+    }
+
     @Test
     void create_shouldReturn200_whenCorrectRequest() throws Exception {
         CreateItemDto createItemDto = CreateItemDto.builder()
@@ -205,6 +240,23 @@ class ItemControllerTest {
                 );
     }
 
+    @Test
+    void update_shouldReturnCommentsPreview_whenManyComments() throws Exception {
+        insertCommentsOfDistinctAuthors();
+
+        mockMvc.perform(patch("/items/{itemId}", 1)
+                        .header("X-Sharer-User-Id", 1)
+                        .header("Content-Type", "application/json")
+                        .content(objectMapper.writeValueAsString(ItemDto.builder().name("update_name").build())))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.comments.length()").value(10),
+                        jsonPath("$.comments[0].authorName").value("author9"),
+                        jsonPath("$.comments[9].authorName").value("author18"),
+                        jsonPath("$.commentsCount").value(15)
+                );
+    }
+
     @Test
     void update_shouldReturn404_whenNotFoundRequestId() throws Exception {
         ItemDto itemDto = ItemDto.builder()
@@ -307,6 +359,86 @@ class ItemControllerTest {
                 );
     }
 
+    @Test
+    void getAllByUserId_shouldReturnLastBooking_whenItemHasApprovedPastBooking() throws Exception {
+        mockMvc.perform(get("/items")
+                        .header("X-Sharer-User-Id", 3)
+                        .header("Content-Type", "application/json"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.[0].id").value(3),
+                        jsonPath("$.[0].lastBooking.id").value(3),
+                        jsonPath("$.[0].lastBooking.bookerId").value(1),
+                        jsonPath("$.[0].nextBooking").isEmpty()
+                );
+    }
+
+    @Test
+    void getAllByUserId_shouldIssueSameStatementCount_whenCommentsGrow() throws Exception {
+        countStatements(get("/items").header("X-Sharer-User-Id", 1));
+        countStatements(get("/items/search").param("text", "item"));
+        long ownerItemsBefore = countStatements(get("/items").header("X-Sharer-User-Id", 1));
+        long searchBefore = countStatements(get("/items/search").param("text", "item"));
+        insertCommentsOfDistinctAuthors();
+
+        long ownerItemsAfter = countStatements(get("/items").header("X-Sharer-User-Id", 1));
+        long searchAfter = countStatements(get("/items/search").param("text", "item"));
+        assertThat(ownerItemsAfter).isEqualTo(ownerItemsBefore);
+        assertThat(searchAfter).isEqualTo(searchBefore);
+        mockMvc.perform(get("/items")
+                        .header("X-Sharer-User-Id", 1))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.[0].comments.length()").value(10),
+                        jsonPath("$.[0].comments[0].authorName").value("author9"),
+                        jsonPath("$.[0].comments[9].authorName").value("author18"),
+                        jsonPath("$.[0].commentsCount").value(15),
+                        jsonPath("$.[1].comments").isEmpty(),
+                        jsonPath("$.[1].commentsCount").value(0)
+                );
+    }
+
+    @Test
+    void getComments_shouldReturnAllCommentsNewestFirst_whenFollowingCursor() throws Exception {
+        insertCommentsOfDistinctAuthors();
+        List<String> authors = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MockHttpServletRequestBuilder request = get("/items/{itemId}/comments", 1).param("size", "6");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            MvcResult result = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn();
+            for (JsonNode comment : objectMapper.readTree(result.getResponse().getContentAsString(StandardCharsets.UTF_8))) {
+                authors.add(comment.get("authorName").asText());
+            }
+            cursor = result.getResponse().getHeader(ItemController.NEXT_CURSOR_HEADER);
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(3);
+        assertThat(authors).hasSize(15);
+        assertThat(authors.get(0)).isEqualTo("author18");
+        assertThat(authors.get(14)).isEqualTo("author4");
+        assertThat(new HashSet<>(authors)).hasSize(15);
+    }
+
+    @Test
+    void getComments_shouldReturn404_whenNotFoundItemId() throws Exception {
+        mockMvc.perform(get("/items/{itemId}/comments", 1000))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getComments_shouldReturn400_whenInvalidCursor() throws Exception {
+        mockMvc.perform(get("/items/{itemId}/comments", 1)
+                        .param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getAllByUserId_shouldReturn404_whenNotFoundUserId() throws Exception {
         mockMvc.perform(get("/items")
@@ -338,6 +470,45 @@ class ItemControllerTest {
                 );
     }
 
+    @Test
+    void search_shouldFindItemByNewName_whenItemUpdatedAfterIndexBuilt() throws Exception {
+        mockMvc.perform(get("/items/search")
+                        .param("text", "дрель")
+                        .header("Content-Type", "application/json"))
+                .andExpectAll(
+                        status().isOk(),
+                        content().json("[]")
+                );
+
+        ItemDto itemDto = ItemDto.builder()
+                .name("Дрель аккумуляторная")
+                .build();
+        mockMvc.perform(patch("/items/{itemId}", 1)
+                        .header("X-Sharer-User-Id", 1)
+                        .header("Content-Type", "application/json")
+                        .content(objectMapper.writeValueAsString(itemDto)))
+                .andExpect(status().isOk());
+        itemIndexUpdater.flush();
+
+        mockMvc.perform(get("/items/search")
+                        .param("text", "дРелЬ")
+                        .header("Content-Type", "application/json"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(1),
+                        jsonPath("$.[0].id").value(1)
+                );
+    }
+
+    @Test
+    void searchIndexRebuild_shouldNotLoadItemsIntoSecondLevelCache_whenCatalogRead() {
+        entityManagerFactory.getCache().evict(Item.class);
+
+        itemIndexUpdater.rebuild();
+
+        assertThat(entityManagerFactory.getCache().contains(Item.class, 1L)).isFalse();
+    }
+
     @Test
     void search_shouldReturn200AndEmptyList_whenBlankText() throws Exception {
         mockMvc.perform(get("/items/search")
@@ -375,10 +546,45 @@ class ItemControllerTest {
                         jsonPath("$.name").value("item3_name"),
                         jsonPath("$.comments[0].text").value("item1_nice"),
                         jsonPath("$.comments[1].text").value("good"),
-                        jsonPath("$.comments[1].authorName").value("user1")
+                        jsonPath("$.comments[1].authorName").value("user1"),
+                        jsonPath("$.commentsCount").value(2)
                 );
     }
 
+    @Test
+    void addComment_shouldNotLoadBookings_whenBookerHasManyBookings() throws Exception {
+        LocalDateTime start = LocalDateTime.now().minusYears(1);
+        for (int i = 0; i < 20; i++) {
+            jdbcTemplate.update("INSERT INTO bookings (start_date, end_date, item_id, booker_id, status) " +
+                    "VALUES (?, ?, 3, 1, 'APPROVED')", start.plusDays(i * 2L), start.plusDays(i * 2L + 1));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(post("/items/{itemId}/comment", 3)
+                        .header("X-Sharer-User-Id", 1)
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(CreateCommentDto.builder().text("good").build())))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.authorName").value("user1")
+                );
+        assertThat(statistics.getEntityStatistics(Booking.class.getName()).getLoadCount()).isZero();
+    }
+
+    @Test
+    void addComment_shouldReturn400_whenApprovedBookingNotStarted() throws Exception {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        jdbcTemplate.update("INSERT INTO bookings (start_date, end_date, item_id, booker_id, status) " +
+                "VALUES (?, ?, 1, 2, 'APPROVED')", start, start.plusDays(1));
+
+        mockMvc.perform(post("/items/{itemId}/comment", 1)
+                        .header("X-Sharer-User-Id", 2)
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(CreateCommentDto.builder().text("good").build())))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void addComment_shouldReturn404_whenNotFoundUserId() throws Exception {
         CreateCommentDto createCommentDto = CreateCommentDto.builder()
@@ -426,4 +632,177 @@ class ItemControllerTest {
                         status().isBadRequest()
                 );
     }
-}
\ No newline at end of file
+
+    @Test
+    void importItems_shouldCreateValidRowsAndReportErrors_whenNdjson() throws Exception {
+        String body = "{\"name\": \"Дрель\", \"description\": \"Ударная\", \"available\": true}\n" +
+                "{\"name\": \"Безе\", \"description\": \"По запросу\", \"available\": true, \"requestId\": 1}\n" +
+                "{\"name\": \"Пила\", \"description\": \"Цепная\", \"available\": true, \"requestId\": 999}\n" +
+                "{\"description\": \"Без названия\", \"available\": true}\n" +
+                "\n" +
+                "{\"name\": \"Лестница\"\n" +
+                "{\"name\": \"Палатка\", \"description\": \"Туристическая\", \"available\": false}\n";
+
+        List<JsonNode> response = importItems("application/x-ndjson", body, 2L);
+
+        Map<Long, String> errors = new HashMap<>();
+        response.stream()
+                .filter(line -> line.has("error"))
+                .forEach(line -> errors.put(line.get("line").asLong(), line.get("error").asText()));
+        assertThat(errors).containsOnlyKeys(3L, 4L, 6L);
+        JsonNode progress = response.get(response.size() - 1);
+        assertThat(progress.get("processed").asLong()).isEqualTo(6);
+        assertThat(progress.get("created").asLong()).isEqualTo(3);
+        assertThat(progress.get("failed").asLong()).isEqualTo(3);
+        assertThat(progress.get("finished").asBoolean()).isTrue();
+
+        mockMvc.perform(get("/items")
+                        .header("X-Sharer-User-Id", 2L))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(3),
+                        jsonPath("$[1].requestId").value(1)
+                );
+        itemIndexUpdater.flush();
+        mockMvc.perform(get("/items/search")
+                        .param("text", "дрель"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(1),
+                        jsonPath("$[0].description").value("Ударная")
+                );
+    }
+
+    @Test
+    void importItems_shouldParseQuotedValues_whenCsv() throws Exception {
+        String body = "description,name,available\n" +
+                "\"Дрель, ударная\",\"Дрель \"\"Bosch\"\"\",true\n" +
+                "Пила,Пила,может быть\n";
+
+        List<JsonNode> response = importItems("text/csv", body, 2L);
+
+        assertThat(response).hasSize(3);
+        assertThat(response.get(0).get("line").asLong()).isEqualTo(3);
+        assertThat(response.get(2).get("created").asLong()).isEqualTo(1);
+        mockMvc.perform(get("/items")
+                        .header("X-Sharer-User-Id", 2L))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(1),
+                        jsonPath("$[0].name").value("Дрель \"Bosch\""),
+                        jsonPath("$[0].description").value("Дрель, ударная"),
+                        jsonPath("$[0].available").value(true)
+                );
+    }
+
+    @Test
+    void importItems_shouldReportProgressAfterEachChunk_whenManyRows() throws Exception {
+        StringBuilder body = new StringBuilder("name,description,available,requestId\n");
+        for (int i = 0; i < 1200; i++) {
+            body.append("item").append(i).append(",description,true,\n");
+        }
+
+        List<JsonNode> response = importItems("text/csv", body.toString(), 2L);
+
+        assertThat(response).extracting(line -> line.get("processed").asLong()).containsExactly(500L, 1000L, 1200L, 1200L);
+        assertThat(response.get(3).get("created").asLong()).isEqualTo(1200);
+    }
+
+    @Test
+    void importItems_shouldReturn404_whenNotFoundUserId() throws Exception {
+        mockMvc.perform(post("/items/import")
+                        .header("X-Sharer-User-Id", 10000L)
+                        .contentType("application/x-ndjson")
+                        .content("{\"name\": \"Дрель\", \"description\": \"Ударная\", \"available\": true}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void importItems_shouldReturn400AndSaveNothing_whenLineTooLong() throws Exception {
+        String body = "{\"name\": \"Дрель\", \"description\": \"Ударная\", \"available\": true}\n" +
+                "{\"name\": \"Пила\", \"description\": \"" + "ы".repeat(5000) + "\", \"available\": true}\n";
+
+        MvcResult started = mockMvc.perform(post("/items/import")
+                        .header("X-Sharer-User-Id", 2L)
+                        .contentType("application/x-ndjson")
+                        .content(body.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+                .andExpectAll(
+                        status().isBadRequest(),
+                        jsonPath("$.error").value("Строка 2 длиннее 4096 символов")
+                );
+
+        mockMvc.perform(get("/items")
+                        .header("X-Sharer-User-Id", 2L))
+                .andExpectAll(
+                        status().isOk(),
+                        content().json("[]")
+                );
+    }
+
+    @Test
+    void importItems_shouldStopWithError_whenLineTooLongAfterFirstChunk() throws Exception {
+        StringBuilder body = new StringBuilder("name,description,available\n");
+        for (int i = 0; i < 600; i++) {
+            body.append("item").append(i).append(",description,true\n");
+        }
+        body.append("item,").append("ы".repeat(5000)).append(",true\n");
+        body.append("last,description,true\n");
+
+        List<JsonNode> response = importItems("text/csv", body.toString(), 2L);
+
+        assertThat(response).hasSize(3);
+        assertThat(response.get(0).get("processed").asLong()).isEqualTo(500);
+        assertThat(response.get(1).get("processed").asLong()).isEqualTo(600);
+        assertThat(response.get(1).get("finished").asBoolean()).isFalse();
+        assertThat(response.get(2).get("line").asLong()).isEqualTo(602);
+        mockMvc.perform(get("/items")
+                        .param("size", "1000")
+                        .header("X-Sharer-User-Id", 2L))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(600)
+                );
+    }
+
+    //15 новых пользователей, каждый оставляет отзыв на вещи 1 и 3; чем больше номер автора, тем новее отзыв
+    private void insertCommentsOfDistinctAuthors() {
+        LocalDateTime created = LocalDateTime.now().minusDays(1);
+        for (int i = 4; i <= 18; i++) {
+            jdbcTemplate.update("INSERT INTO users (id, name, email) VALUES (?, ?, ?)", i, "author" + i, "author" + i + "@email.com");
+            for (long itemId : List.of(1L, 3L)) {
+                jdbcTemplate.update("INSERT INTO comments (text, item_id, author_id, created) VALUES (?, ?, ?, ?)",
+                        "comment" + i, itemId, i, created.plusMinutes(i));
+            }
+        }
+    }
+
+    private long countStatements(MockHttpServletRequestBuilder request) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(request).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    private List<JsonNode> importItems(String contentType, String body, Long userId) throws Exception {
+        MvcResult started = mockMvc.perform(post("/items/import")
+                        .header("X-Sharer-User-Id", userId)
+                        .contentType(contentType)
+                        .content(body.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String response = mockMvc.perform(asyncDispatch(started))
+                .andExpectAll(
+                        status().isOk(),
+                        content().contentType("application/x-ndjson")
+                )
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : response.split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+}
@@ -5,18 +5,26 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.dto.ItemBookingDto;
+import ru.practicum.shareit.booking.summary.ItemBookingSummary;
+import ru.practicum.shareit.booking.summary.ItemBookingSummaryService;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.model.Status;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 class ItemServiceImplTest {
@@ -24,6 +32,12 @@ class ItemServiceImplTest {
     @Mock
     private ItemRepository itemRepository;
 
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private ItemBookingSummaryService itemBookingSummaryService;
+
     @InjectMocks
     ItemServiceImpl itemService;
 
@@ -32,38 +46,70 @@ class ItemServiceImplTest {
         User owner = User.builder()
                 .id(5L)
                 .build();
-        Booking nextBooking = Booking.builder()
+        Item item = Item.builder()
                 .id(1L)
-                .start(LocalDateTime.now().plusDays(2))
-                .status(Status.APPROVED)
+                .name("item_name")
+                .available(true)
+                .description("description")
+                .owner(owner)
                 .build();
-        Booking lastBooking = Booking.builder()
-                .id(2L)
-                .start(LocalDateTime.now().minusDays(2))
-                .status(Status.APPROVED)
+        ItemBookingDto lastBooking = new ItemBookingDto(1L, 2L, 7L, LocalDateTime.now().minusDays(2));
+        ItemBookingDto nextBooking = new ItemBookingDto(1L, 1L, 8L, LocalDateTime.now().plusDays(2));
+        doReturn(Optional.of(item)).when(itemRepository).findById(anyLong());
+        doReturn(List.of(nextBooking, lastBooking)).when(bookingRepository)
+                .findLastAndNextOfItems(anyCollection(), eq(Status.APPROVED), any(LocalDateTime.class));
+
+        Item actual = itemService.getById(1L, 5L);
+        assertThat(actual.getLastBooking().getId()).isEqualTo(2L);
+        assertThat(actual.getLastBooking().getBooker().getId()).isEqualTo(7L);
+        assertThat(actual.getNextBooking().getId()).isEqualTo(1L);
+        assertThat(actual.getNextBooking().getBooker().getId()).isEqualTo(8L);
+    }
+
+    @Test
+    void getById_shouldUseNextBookingAsLast_whenNoPastBookings() {
+        User owner = User.builder()
+                .id(5L)
                 .build();
-        Booking futureBooking = Booking.builder()
+        Item item = Item.builder()
                 .id(1L)
-                .start(LocalDateTime.now().plusDays(4))
-                .status(Status.APPROVED)
+                .owner(owner)
                 .build();
-        Booking pastBooking = Booking.builder()
-                .id(2L)
-                .start(LocalDateTime.now().minusDays(4))
-                .status(Status.APPROVED)
+        ItemBookingDto nextBooking = new ItemBookingDto(1L, 1L, 8L, LocalDateTime.now().plusDays(2));
+        doReturn(Optional.of(item)).when(itemRepository).findById(anyLong());
+        doReturn(List.of(nextBooking)).when(bookingRepository)
+                .findLastAndNextOfItems(anyCollection(), eq(Status.APPROVED), any(LocalDateTime.class));
+
+        Item actual = itemService.getById(1L, 5L);
+        assertThat(actual.getLastBooking().getId()).isEqualTo(1L);
+        assertThat(actual.getNextBooking().getId()).isEqualTo(1L);
+    }
+
+    @Test
+    void getById_shouldTakeBookingsFromSummary_whenSummaryFresh() {
+        User owner = User.builder()
+                .id(5L)
                 .build();
         Item item = Item.builder()
                 .id(1L)
-                .name("item_name")
-                .available(true)
-                .description("description")
-                .bookings(List.of(lastBooking, nextBooking, futureBooking, pastBooking))
                 .owner(owner)
                 .build();
+        ItemBookingSummary summary = new ItemBookingSummary(1L);
+        summary.setLastBookingId(2L);
+        summary.setLastBookerId(7L);
+        summary.setLastStart(LocalDateTime.now().minusDays(2));
+        summary.setNextBookingId(1L);
+        summary.setNextBookerId(8L);
+        summary.setNextStart(LocalDateTime.now().plusDays(2));
         doReturn(Optional.of(item)).when(itemRepository).findById(anyLong());
+        doReturn(Map.of(1L, summary)).when(itemBookingSummaryService)
+                .findFresh(anyCollection(), any(LocalDateTime.class));
 
         Item actual = itemService.getById(1L, 5L);
-        assertThat(actual.getLastBooking()).isEqualTo(lastBooking);
-        assertThat(actual.getNextBooking()).isEqualTo(nextBooking);
+        assertThat(actual.getLastBooking().getId()).isEqualTo(2L);
+        assertThat(actual.getLastBooking().getBooker().getId()).isEqualTo(7L);
+        assertThat(actual.getNextBooking().getId()).isEqualTo(1L);
+        assertThat(actual.getNextBooking().getBooker().getId()).isEqualTo(8L);
+        verifyNoInteractions(bookingRepository);
     }
-}
\ No newline at end of file
+}
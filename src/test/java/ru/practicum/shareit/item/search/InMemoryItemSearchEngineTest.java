@@ -0,0 +1,167 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.dto.ItemSearchDocumentDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.shared.pagination.OffsetBasedPageRequest;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class InMemoryItemSearchEngineTest {
+
+    private final Item drill = Item.builder().id(1L).name("Дрель").description("Простая дрель").available(true).build();
+    private final Item screwdriver = Item.builder().id(2L).name("Отвертка").description("Аккумуляторная отвертка")
+            .available(true).build();
+    private final Item battery = Item.builder().id(3L).name("Аккумулятор").description("Запасной").available(true).build();
+    private final Item hidden = Item.builder().id(4L).name("Аккумулятор старый").description("").available(false).build();
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    private InMemoryItemSearchEngine engine;
+
+    //Чанк из двух вещей: построение и сверка проходят по нескольким чанкам
+    @BeforeEach
+    void setUp() {
+        engine = new InMemoryItemSearchEngine(itemRepository, 2);
+    }
+
+    @Test
+    void search_shouldQueryDatabase_whenIndexNotBuilt() {
+        doReturn(List.of(drill)).when(itemRepository).search("дрель", new OffsetBasedPageRequest(0, 10));
+
+        assertThat(ids(engine.search("дрель", new OffsetBasedPageRequest(0, 10)))).containsExactly(1L);
+        verify(itemRepository, never()).findSearchDocumentsAfter(anyLong(), any());
+    }
+
+    @Test
+    void search_shouldRankNameMatchesFirstAndSkipUnavailable_whenSubstringMatchesSeveralItems() {
+        mockRepository(List.of(drill, screwdriver, battery, hidden));
+
+        List<Item> actual = engine.search("аккум", new OffsetBasedPageRequest(0, 10));
+
+        assertThat(ids(actual)).containsExactly(3L, 2L);
+    }
+
+    @Test
+    void search_shouldSeeNewName_whenItemIndexedAfterUpdate() {
+        mockRepository(List.of(drill, screwdriver));
+        assertThat(engine.search("перфоратор", new OffsetBasedPageRequest(0, 10))).isEmpty();
+
+        drill.setName("Перфоратор");
+        engine.index(drill);
+
+        assertThat(ids(engine.search("перфоратор", new OffsetBasedPageRequest(0, 10)))).containsExactly(1L);
+        assertThat(ids(engine.search("дрель", new OffsetBasedPageRequest(0, 10)))).containsExactly(1L);
+    }
+
+    @Test
+    void search_shouldReturnRequestedPage_whenOffsetGiven() {
+        mockRepository(List.of(drill, screwdriver, battery));
+
+        List<Item> actual = engine.search("р", new OffsetBasedPageRequest(1, 1));
+
+        assertThat(ids(actual)).containsExactly(2L);
+    }
+
+    @Test
+    void search_shouldMatchOnlyItemsContainingText_whenTextShorterThanTrigram() {
+        mockRepository(List.of(drill, screwdriver, battery, hidden));
+
+        assertThat(ids(engine.search("ль", new OffsetBasedPageRequest(0, 10)))).containsExactly(1L);
+        assertThat(ids(engine.search("ум", new OffsetBasedPageRequest(0, 10)))).containsExactly(3L, 2L);
+        assertThat(engine.search("ы", new OffsetBasedPageRequest(0, 10))).isEmpty();
+    }
+
+    @Test
+    void rebuild_shouldRereadItem_whenItemChangedWhileReadingDatabase() {
+        mockFindAllById(List.of(drill, battery));
+        List<Item> snapshot = List.of(drill, screwdriver, battery);
+        doAnswer(invocation -> {
+            engine.remove(screwdriver.getId());
+            return documentsAfter(snapshot, invocation.getArgument(0), invocation.getArgument(1));
+        }).when(itemRepository).findSearchDocumentsAfter(anyLong(), any());
+
+        engine.rebuild();
+
+        assertThat(engine.search("отвертка", new OffsetBasedPageRequest(0, 10))).isEmpty();
+        assertThat(ids(engine.search("аккум", new OffsetBasedPageRequest(0, 10)))).containsExactly(3L);
+    }
+
+    @Test
+    void search_shouldDropItemFromIndex_whenItemMissingInDatabase() {
+        mockFindSearchDocumentsAfter(List.of(drill, screwdriver, battery));
+        engine.rebuild();
+        mockFindAllById(List.of(screwdriver, battery));
+
+        assertThat(engine.search("дрель", new OffsetBasedPageRequest(0, 10))).isEmpty();
+        assertThat(ids(engine.search("р", new OffsetBasedPageRequest(0, 1)))).containsExactly(2L);
+    }
+
+    @Test
+    void reconcile_shouldFixOnlyDivergedItems_whenDatabaseChangedWithoutEvents() {
+        Item renamed = Item.builder().id(2L).name("Шуруповерт").description("Аккумуляторная отвертка")
+                .available(true).build();
+        Item added = Item.builder().id(5L).name("Перфоратор").description("").available(true).build();
+        mockFindSearchDocumentsAfter(List.of(drill, screwdriver, battery));
+        engine.rebuild();
+        mockFindSearchDocumentsAfter(List.of(renamed, battery, added));
+        mockFindAllById(List.of(renamed, battery, added));
+
+        engine.reconcile();
+
+        assertThat(engine.search("дрель", new OffsetBasedPageRequest(0, 10))).isEmpty();
+        assertThat(ids(engine.search("шуруп", new OffsetBasedPageRequest(0, 10)))).containsExactly(2L);
+        assertThat(ids(engine.search("перфоратор", new OffsetBasedPageRequest(0, 10)))).containsExactly(5L);
+        assertThat(ids(engine.search("аккум", new OffsetBasedPageRequest(0, 10)))).containsExactly(3L, 2L);
+    }
+
+    //Индекс строится так же, как на старте приложения
+    private void mockRepository(List<Item> items) {
+        mockFindSearchDocumentsAfter(items);
+        mockFindAllById(items);
+        engine.rebuild();
+    }
+
+    private void mockFindSearchDocumentsAfter(List<Item> items) {
+        doAnswer(invocation -> documentsAfter(items, invocation.getArgument(0), invocation.getArgument(1)))
+                .when(itemRepository).findSearchDocumentsAfter(anyLong(), any());
+    }
+
+    private List<ItemSearchDocumentDto> documentsAfter(List<Item> items, Long afterId, OffsetBasedPageRequest pageable) {
+        return items.stream()
+                .filter(i -> i.getId() > afterId)
+                .sorted(Comparator.comparing(Item::getId))
+                .limit(pageable.getPageSize())
+                .map(i -> new ItemSearchDocumentDto(i.getId(), i.getName(), i.getDescription(), i.getAvailable()))
+                .collect(Collectors.toList());
+    }
+
+    private void mockFindAllById(List<Item> items) {
+        doAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return items.stream().filter(i -> ids.contains(i.getId())).collect(Collectors.toList());
+        }).when(itemRepository).findAllById(anyList());
+    }
+
+    private List<Long> ids(List<Item> items) {
+        return items.stream().map(Item::getId).collect(Collectors.toList());
+    }
+}
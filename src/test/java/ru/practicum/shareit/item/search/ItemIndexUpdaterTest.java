@@ -0,0 +1,72 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.item.ItemRepository;
+import ru.practicum.shareit.item.event.ItemChangedEvent;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ItemIndexUpdaterTest {
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    @Mock
+    private ItemSearchEngine itemSearchEngine;
+
+    private ItemIndexUpdater itemIndexUpdater;
+
+    @BeforeEach
+    void setUp() {
+        itemIndexUpdater = new ItemIndexUpdater(itemRepository, itemSearchEngine, 2);
+    }
+
+    @Test
+    void flush_shouldIndexItemOnce_whenItemChangedSeveralTimes() {
+        Item item = Item.builder().id(1L).build();
+        doReturn(List.of(item)).when(itemRepository).findAllById(List.of(1L));
+
+        itemIndexUpdater.onItemChanged(new ItemChangedEvent(1L));
+        itemIndexUpdater.onItemChanged(new ItemChangedEvent(1L));
+        itemIndexUpdater.onItemChanged(new ItemChangedEvent(1L));
+        itemIndexUpdater.flush();
+
+        verify(itemRepository, times(1)).findAllById(anyList());
+        verify(itemSearchEngine, times(1)).index(item);
+    }
+
+    @Test
+    void flush_shouldSplitIntoBatchesAndRemoveMissing_whenManyItemsChanged() {
+        doAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            return ids.stream().filter(id -> id != 3L).map(id -> Item.builder().id(id).build())
+                    .collect(Collectors.toList());
+        }).when(itemRepository).findAllById(anyList());
+
+        itemIndexUpdater.onItemChanged(new ItemChangedEvent(1L));
+        itemIndexUpdater.onItemChanged(new ItemChangedEvent(2L));
+        itemIndexUpdater.onItemChanged(new ItemChangedEvent(3L));
+        itemIndexUpdater.flush();
+
+        verify(itemRepository, times(2)).findAllById(anyList());
+        verify(itemSearchEngine, times(2)).index(any(Item.class));
+        verify(itemSearchEngine).remove(3L);
+    }
+
+    @Test
+    void flush_shouldDoNothing_whenNoChanges() {
+        itemIndexUpdater.flush();
+
+        verifyNoInteractions(itemRepository, itemSearchEngine);
+    }
+}
@@ -0,0 +1,116 @@
+package ru.practicum.shareit.item.search;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("postgres")
+class TrigramItemSearchEngineTest {
+
+    private static EmbeddedPostgres postgres;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ItemSearchEngine itemSearchEngine;
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) throws IOException {
+        //Регистр кириллицы в ILIKE зависит от локали кластера, поэтому она задается явно, а не берется из окружения
+        postgres = EmbeddedPostgres.builder()
+                .setLocaleConfig("locale", "C.UTF-8")
+                .setLocaleConfig("encoding", "UTF8")
+                .start();
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+        registry.add("spring.flyway.enabled", () -> "true");
+    }
+
+    @AfterAll
+    static void stopPostgres() throws IOException {
+        postgres.close();
+    }
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.execute("TRUNCATE users, request, items, bookings, comments RESTART IDENTITY CASCADE");
+        jdbcTemplate.update("INSERT INTO users (id, name, email) VALUES (1, 'owner', 'owner@email.com')");
+        jdbcTemplate.update("INSERT INTO items (id, name, description, is_available, owner_id) VALUES " +
+                "(1, 'Дрель', 'Простая дрель', true, 1), " +
+                "(2, 'Отвертка', 'Аккумуляторная отвертка', true, 1), " +
+                "(3, 'Дрель ударная', 'Сломана', false, 1)");
+    }
+
+    @Test
+    void engine_shouldBeTrigram_whenPostgresProfileActive() {
+        assertThat(itemSearchEngine).isInstanceOf(TrigramItemSearchEngine.class);
+    }
+
+    @Test
+    void search_shouldReturnAvailableSubstringMatches_whenAnyCaseText() throws Exception {
+        mockMvc.perform(get("/items/search")
+                        .param("text", "дРелЬ")
+                        .header("Content-Type", "application/json"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(1),
+                        jsonPath("$.[0].id").value(1)
+                );
+
+        mockMvc.perform(get("/items/search")
+                        .param("text", "аккУМУлятор")
+                        .header("Content-Type", "application/json"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(1),
+                        jsonPath("$.[0].id").value(2)
+                );
+    }
+
+    @Test
+    void searchQuery_shouldUseTrigramIndexes_whenSequentialScanDisabled() {
+        //На трех строках планировщик выберет seq scan, поэтому проверяем, что индекс вообще применим к запросу
+        String plan = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET enable_seqscan = off");
+                StringBuilder result = new StringBuilder();
+                try (ResultSet rs = statement.executeQuery("EXPLAIN SELECT * FROM items i " +
+                        "WHERE (i.name ILIKE '%дрель%' OR i.description ILIKE '%дрель%') " +
+                        "AND i.is_available IS TRUE")) {
+                    while (rs.next()) {
+                        result.append(rs.getString(1)).append('\n');
+                    }
+                }
+                statement.execute("RESET enable_seqscan");
+                return result.toString();
+            }
+        });
+
+        assertThat(plan).contains("items_name_trgm_idx", "items_description_trgm_idx");
+    }
+}
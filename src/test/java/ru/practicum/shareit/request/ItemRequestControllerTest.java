@@ -1,15 +1,27 @@
 package ru.practicum.shareit.request;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import ru.practicum.shareit.request.dto.PostItemRequestDto;
 
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -26,6 +38,12 @@ class ItemRequestControllerTest {
     @Autowired
     MockMvc mockMvc;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
     @Test
     void create_shouldReturn200_whenCorrectRequest() throws Exception {
         PostItemRequestDto postItemRequestDto = PostItemRequestDto.builder()
@@ -162,4 +180,170 @@ class ItemRequestControllerTest {
                         status().isNotFound()
                 );
     }
+
+    @Test
+    void getPage_shouldNotQueryUser_whenUserAlreadyChecked() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get("/requests/all")
+                        .header("X-Sharer-User-Id", 2))
+                .andExpect(status().isOk());
+        assertTrue(Arrays.stream(statistics.getQueries()).anyMatch(query -> query.contains(" User ")));
+
+        statistics.clear();
+        mockMvc.perform(get("/requests/all")
+                        .header("X-Sharer-User-Id", 2))
+                .andExpect(status().isOk());
+
+        assertTrue(Arrays.stream(statistics.getQueries()).noneMatch(query -> query.contains(" User ")));
+    }
+
+    @Test
+    void getPage_shouldReturn404_whenUserDeletedAfterCheck() throws Exception {
+        mockMvc.perform(get("/requests/all")
+                        .header("X-Sharer-User-Id", 2))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/users/{userId}", 2))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/requests/all")
+                        .header("X-Sharer-User-Id", 2))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getPage_shouldIssueSameStatementCount_whenAnswersGrow() throws Exception {
+        countStatements(get("/requests/all").header("X-Sharer-User-Id", 2));
+        countStatements(get("/requests").header("X-Sharer-User-Id", 1));
+        long pageBefore = countStatements(get("/requests/all").header("X-Sharer-User-Id", 2));
+        long ownBefore = countStatements(get("/requests").header("X-Sharer-User-Id", 1));
+        long byIdBefore = countStatements(get("/requests/{requestId}", 1).header("X-Sharer-User-Id", 2));
+        insertAnsweredRequests();
+
+        long pageAfter = countStatements(get("/requests/all").header("X-Sharer-User-Id", 2));
+        long ownAfter = countStatements(get("/requests").header("X-Sharer-User-Id", 1));
+        long byIdAfter = countStatements(get("/requests/{requestId}", 1).header("X-Sharer-User-Id", 2));
+        assertThat(pageAfter).isEqualTo(pageBefore);
+        assertThat(ownAfter).isEqualTo(ownBefore);
+        assertThat(byIdAfter).isEqualTo(byIdBefore);
+        mockMvc.perform(get("/requests/all")
+                        .header("X-Sharer-User-Id", 2))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(6),
+                        jsonPath("$.[0].id").value(7),
+                        jsonPath("$.[0].items.length()").value(3),
+                        jsonPath("$.[0].items[0].requestId").value(7),
+                        jsonPath("$.[5].id").value(1),
+                        jsonPath("$.[5].items.length()").value(4),
+                        jsonPath("$.[5].items[0].id").value(1)
+                );
+    }
+
+    @Test
+    void getByUserId_shouldReturnAllNewestFirst_whenNoPagingParams() throws Exception {
+        insertAnsweredRequests();
+        for (long requestId = 8; requestId <= 25; requestId++) {
+            jdbcTemplate.update("INSERT INTO request (id, description, created, requestor_id) VALUES (?, ?, ?, 1)",
+                    requestId, "request" + requestId, LocalDateTime.of(2022, 10, 12, 12, 0).plusMinutes(requestId));
+        }
+
+        mockMvc.perform(get("/requests")
+                        .header("X-Sharer-User-Id", 1))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(24),
+                        jsonPath("$.[0].id").value(25),
+                        jsonPath("$.[23].id").value(1),
+                        jsonPath("$.[23].items.length()").value(4),
+                        header().doesNotExist(ItemRequestController.NEXT_CURSOR_HEADER)
+                );
+    }
+
+    @Test
+    void getByUserId_shouldReturnPageNewestFirst_whenFromAndSize() throws Exception {
+        insertAnsweredRequests();
+
+        mockMvc.perform(get("/requests")
+                        .param("from", "1")
+                        .param("size", "2")
+                        .header("X-Sharer-User-Id", 1))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(2),
+                        jsonPath("$.[0].id").value(6),
+                        jsonPath("$.[1].id").value(5),
+                        jsonPath("$.[1].items.length()").value(3)
+                );
+    }
+
+    @Test
+    void getByUserId_shouldContinueAfterCursor_whenNextCursorPassed() throws Exception {
+        insertAnsweredRequests();
+
+        String cursor = mockMvc.perform(get("/requests")
+                        .param("size", "3")
+                        .header("X-Sharer-User-Id", 1))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.[*].id").value(contains(7, 6, 5)),
+                        header().exists(ItemRequestController.NEXT_CURSOR_HEADER)
+                )
+                .andReturn().getResponse().getHeader(ItemRequestController.NEXT_CURSOR_HEADER);
+
+        cursor = mockMvc.perform(get("/requests")
+                        .param("size", "3")
+                        .param("cursor", cursor)
+                        .header("X-Sharer-User-Id", 1))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.[*].id").value(contains(4, 3, 1)),
+                        jsonPath("$.[2].items.length()").value(4)
+                )
+                .andReturn().getResponse().getHeader(ItemRequestController.NEXT_CURSOR_HEADER);
+
+        mockMvc.perform(get("/requests")
+                        .param("size", "3")
+                        .param("cursor", cursor)
+                        .header("X-Sharer-User-Id", 1))
+                .andExpectAll(
+                        status().isOk(),
+                        content().json("[]"),
+                        header().doesNotExist(ItemRequestController.NEXT_CURSOR_HEADER)
+                );
+    }
+
+    @Test
+    void getByUserId_shouldReturn400_whenInvalidCursor() throws Exception {
+        mockMvc.perform(get("/requests")
+                        .param("cursor", "not-a-cursor")
+                        .header("X-Sharer-User-Id", 1))
+                .andExpect(status().isBadRequest());
+    }
+
+    //Запросы 3..7 пользователя 1, на каждый отвечают три вещи пользователя 3, еще три - на запрос 1
+    private void insertAnsweredRequests() {
+        LocalDateTime created = LocalDateTime.of(2022, 10, 11, 12, 0);
+        for (long requestId = 1; requestId <= 7; requestId++) {
+            if (requestId == 2) {
+                continue;
+            }
+            if (requestId > 1) {
+                jdbcTemplate.update("INSERT INTO request (id, description, created, requestor_id) VALUES (?, ?, ?, 1)",
+                        requestId, "request" + requestId, created.plusMinutes(requestId));
+            }
+            for (int i = 0; i < 3; i++) {
+                jdbcTemplate.update("INSERT INTO items (name, description, is_available, owner_id, request_id) " +
+                        "VALUES (?, ?, true, 3, ?)", "answer" + i, "answer" + i + "_description", requestId);
+            }
+        }
+    }
+
+    private long countStatements(MockHttpServletRequestBuilder request) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(request).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
 }
@@ -1,6 +1,9 @@
 package ru.practicum.shareit.user;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -8,11 +11,15 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.item.search.ItemIndexUpdater;
 import ru.practicum.shareit.user.dto.CreateUserDto;
 import ru.practicum.shareit.user.dto.UserDto;
 
+import javax.persistence.EntityManagerFactory;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -28,6 +35,18 @@ class UserServiceImplTest {
     @Autowired
     MockMvc mockMvc;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    ItemIndexUpdater itemIndexUpdater;
+
+    //Данные заливаются скриптами после старта контекста, а индекс поиска строится на старте - перестраиваем
+    @BeforeEach
+    void rebuildSearchIndex() {
+        itemIndexUpdater.rebuild();
+    }
+
     @Test
     void create_shouldReturn200_whenCorrectRequest() throws Exception {
         CreateUserDto createUserDto = CreateUserDto.builder()
@@ -237,4 +256,56 @@ class UserServiceImplTest {
                         content().json(response)
                 );
     }
+
+    @Test
+    void getById_shouldReadUserFromSecondLevelCache_whenRequestedAgain() throws Exception {
+        mockMvc.perform(get("/users/{userId}", 1))
+                .andExpect(status().isOk());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        mockMvc.perform(get("/users/{userId}", 1))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.email").value("user1@email.com")
+                );
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getSecondLevelCacheHitCount() >= 1);
+    }
+
+    @Test
+    void delete_shouldEvictCachedItemsOfUser_whenCorrectRequest() throws Exception {
+        mockMvc.perform(get("/items/{itemId}", 1)
+                        .header("X-Sharer-User-Id", 1))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/users/{userId}", 1))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/items/{itemId}", 1)
+                        .header("X-Sharer-User-Id", 2))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void delete_shouldRemoveItemsOfUserFromSearch_whenCorrectRequest() throws Exception {
+        mockMvc.perform(get("/items/search").param("text", "_name").param("size", "1"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.[0].id").value(1)
+                );
+
+        mockMvc.perform(delete("/users/{userId}", 1))
+                .andExpect(status().isOk());
+        itemIndexUpdater.flush();
+
+        mockMvc.perform(get("/items/search").param("text", "_name").param("size", "1"))
+                .andExpectAll(
+                        status().isOk(),
+                        jsonPath("$.length()").value(1),
+                        jsonPath("$.[0].id").value(3)
+                );
+    }
 }
@@ -17,4 +17,29 @@ VALUES ('2021-10-10 11:30:30', '2021-10-12 11:30:30', 1, 3, 'WAITING'),
        ('2022-01-01 11:30:30', '2022-01-10 11:30:30', 3, 1, 'APPROVED');
 
 INSERT INTO COMMENTS (TEXT, ITEM_ID, AUTHOR_ID, CREATED)
-VALUES ('item1_nice', 3, 1, '2023-01-01 11:30:30');
\ No newline at end of file
+VALUES ('item1_nice', 3, 1, '2023-01-01 11:30:30');
+
+-- Сводки броней вещей заполняются так же, как в миграции V6
+INSERT INTO item_booking_summary (item_id, approved_count, last_booking_id, next_booking_id)
+SELECT i.id,
+       (SELECT COUNT(*) FROM bookings b WHERE b.item_id = i.id AND b.status = 'APPROVED'),
+       (SELECT b.id FROM bookings b
+        WHERE b.item_id = i.id AND b.status = 'APPROVED' AND b.start_date < LOCALTIMESTAMP
+        ORDER BY b.start_date DESC, b.id LIMIT 1),
+       (SELECT b.id FROM bookings b
+        WHERE b.item_id = i.id AND b.status = 'APPROVED' AND b.start_date > LOCALTIMESTAMP
+        ORDER BY b.start_date, b.id LIMIT 1)
+FROM items i;
+
+UPDATE item_booking_summary s
+SET last_booker_id = (SELECT b.booker_id FROM bookings b WHERE b.id = s.last_booking_id),
+    last_start     = (SELECT b.start_date FROM bookings b WHERE b.id = s.last_booking_id),
+    next_booker_id = (SELECT b.booker_id FROM bookings b WHERE b.id = s.next_booking_id),
+    next_start     = (SELECT b.start_date FROM bookings b WHERE b.id = s.next_booking_id);
+
+-- Фикстуры вставлены через IDENTITY, последовательности Hibernate продолжают нумерацию после них
+ALTER SEQUENCE users_id_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM users);
+ALTER SEQUENCE request_id_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM request);
+ALTER SEQUENCE items_id_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM items);
+ALTER SEQUENCE bookings_id_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM bookings);
+ALTER SEQUENCE comments_id_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM comments);
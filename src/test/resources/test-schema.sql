@@ -3,6 +3,12 @@ DROP TABLE IF EXISTS request CASCADE;
 DROP TABLE IF EXISTS items CASCADE;
 DROP TABLE IF EXISTS bookings CASCADE;
 DROP TABLE IF EXISTS comments CASCADE;
+DROP TABLE IF EXISTS item_booking_summary CASCADE;
+DROP SEQUENCE IF EXISTS users_id_seq;
+DROP SEQUENCE IF EXISTS request_id_seq;
+DROP SEQUENCE IF EXISTS items_id_seq;
+DROP SEQUENCE IF EXISTS bookings_id_seq;
+DROP SEQUENCE IF EXISTS comments_id_seq;
 
 CREATE TABLE IF NOT EXISTS users
 (
@@ -21,6 +27,8 @@ CREATE TABLE IF NOT EXISTS request
     requestor_id BIGINT REFERENCES users (id) ON DELETE CASCADE
 );
 
+CREATE INDEX IF NOT EXISTS request_requestor_id_created_idx ON request (requestor_id, created DESC, id DESC);
+
 CREATE TABLE IF NOT EXISTS items
 (
     id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
@@ -31,12 +39,8 @@ CREATE TABLE IF NOT EXISTS items
     request_id   BIGINT REFERENCES request (id) ON DELETE CASCADE
 );
 
-CREATE TYPE IF NOT EXISTS status AS ENUM (
-    'WAITING',
-    'APPROVED',
-    'REJECTED',
-    'CANCELED'
-    );
+CREATE INDEX IF NOT EXISTS items_owner_id_idx ON items (owner_id, id);
+CREATE INDEX IF NOT EXISTS items_request_id_idx ON items (request_id, id);
 
 CREATE TABLE IF NOT EXISTS bookings
 (
@@ -45,14 +49,47 @@ CREATE TABLE IF NOT EXISTS bookings
     end_date   TIMESTAMP WITHOUT TIME ZONE NOT NULL,
     item_id    BIGINT REFERENCES items (id) ON DELETE CASCADE ,
     booker_id  BIGINT REFERENCES users (id) ON DELETE CASCADE ,
-    status     status                      NOT NULL
+    status     VARCHAR(16)                 NOT NULL
+        CHECK (status IN ('WAITING', 'APPROVED', 'REJECTED', 'CANCELED'))
 );
 
+CREATE INDEX IF NOT EXISTS bookings_item_id_start_date_idx ON bookings (item_id, start_date DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS bookings_item_id_status_start_date_idx ON bookings (item_id, status, start_date DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS bookings_booker_id_start_date_idx ON bookings (booker_id, start_date DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS bookings_booker_id_status_start_date_idx ON bookings (booker_id, status, start_date DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS bookings_booker_id_item_id_status_start_date_idx ON bookings (booker_id, item_id, status, start_date);
+
 CREATE TABLE IF NOT EXISTS comments
 (
     id        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     text      VARCHAR(1024) NOT NULL,
     item_id   BIGINT REFERENCES items (id) ON DELETE CASCADE ,
     author_id BIGINT REFERENCES users (id) ON DELETE CASCADE ,
-    created   TIMESTAMP WITHOUT TIME ZONE
+    created   TIMESTAMP WITHOUT TIME ZONE NOT NULL
 );
+
+CREATE INDEX IF NOT EXISTS comments_item_id_created_idx ON comments (item_id, created DESC, id DESC);
+
+CREATE TABLE IF NOT EXISTS item_booking_summary
+(
+    item_id         BIGINT PRIMARY KEY REFERENCES items (id) ON DELETE CASCADE,
+    last_booking_id BIGINT,
+    last_booker_id  BIGINT,
+    last_start      TIMESTAMP WITHOUT TIME ZONE,
+    next_booking_id BIGINT,
+    next_booker_id  BIGINT,
+    next_start      TIMESTAMP WITHOUT TIME ZONE,
+    approved_count  BIGINT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS item_booking_summary_next_start_idx ON item_booking_summary (next_start);
+
+CREATE SEQUENCE IF NOT EXISTS users_id_seq START WITH 50 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS request_id_seq START WITH 50 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS items_id_seq START WITH 50 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS bookings_id_seq START WITH 50 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS comments_id_seq START WITH 50 INCREMENT BY 50;